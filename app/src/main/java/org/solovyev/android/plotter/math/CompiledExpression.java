@@ -0,0 +1,831 @@
+package org.solovyev.android.plotter.math;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.objecthunter.exp4j.constant.Constants;
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.operator.Operator;
+import net.objecthunter.exp4j.shuntingyard.ShuntingYard;
+import net.objecthunter.exp4j.tokenizer.FunctionToken;
+import net.objecthunter.exp4j.tokenizer.NumberToken;
+import net.objecthunter.exp4j.tokenizer.OperatorToken;
+import net.objecthunter.exp4j.tokenizer.Token;
+import net.objecthunter.exp4j.tokenizer.VariableToken;
+
+import org.solovyev.android.plotter.Interval;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Register-based form of an exp4j expression. Each instruction occupies {@link #INSTRUCTION_SIZE} ints in
+ * {@link #code}: opcode, destination register and two source registers. Registers are laid out as follows:
+ * arguments first (in the order they were passed to {@link #compile(String, String...)}), then temporary values
+ * and then constants. Evaluation doesn't allocate and doesn't throw: errors are reported as {@link Double#NaN} (the same
+ * way as {@link ExpressionFunction} reports exceptions thrown by exp4j).
+ * <p/>
+ * The expression can also be evaluated on intervals (see {@link #evaluate(double[], double[], Interval)}) and
+ * together with its derivative (see {@link #evaluate(double[], double[])}).
+ * <p/>
+ * The instance is immutable, registers are provided by the caller (see {@link #newRegisters()}).
+ */
+final class CompiledExpression {
+
+    private static final int INSTRUCTION_SIZE = 4;
+
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+    private static final int POWER = 4;
+    private static final int MODULO = 5;
+    private static final int NEGATE = 6;
+    private static final int SIN = 7;
+    private static final int COS = 8;
+    private static final int TAN = 9;
+    private static final int LOG = 10;
+    private static final int LOG1P = 11;
+    private static final int ABS = 12;
+    private static final int ACOS = 13;
+    private static final int ASIN = 14;
+    private static final int ATAN = 15;
+    private static final int CBRT = 16;
+    private static final int CEIL = 17;
+    private static final int FLOOR = 18;
+    private static final int SINH = 19;
+    private static final int SQRT = 20;
+    private static final int TANH = 21;
+    private static final int COSH = 22;
+    private static final int EXP = 23;
+    private static final int EXPM1 = 24;
+    private static final int LOG10 = 25;
+    private static final int LOG2 = 26;
+    private static final int SIGNUM = 27;
+
+    private static final double LN2 = Math.log(2d);
+    private static final double LN10 = Math.log(10d);
+    private static final double PI_2 = Math.PI / 2;
+    // interval bounds are not rounded outwards by the operations => the result is widened to cover the accumulated
+    // rounding errors
+    private static final int INTERVAL_ULPS = 1 << 12;
+
+    @NonNull
+    private final int[] code;
+    @NonNull
+    private final double[] registers;
+    private final int result;
+
+    private CompiledExpression(@NonNull int[] code, @NonNull double[] registers, int result) {
+        this.code = code;
+        this.registers = registers;
+        this.result = result;
+    }
+
+    /**
+     * @return compiled expression or null if the expression contains constructs which can't be compiled (in which
+     * case exp4j should be used for the evaluation)
+     */
+    @Nullable
+    static CompiledExpression compile(@NonNull String expression, @NonNull String... arguments) {
+        final Set<String> variables = new HashSet<>(Constants.getBuiltinConstants().keySet());
+        Collections.addAll(variables, arguments);
+        try {
+            final Token[] tokens = ShuntingYard.convertToRPN(expression, Collections.<String, Function>emptyMap(), Collections.<String, Operator>emptyMap(), variables);
+            return new Compiler(arguments).compile(tokens);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static double apply(int op, double a, double b) {
+        switch (op) {
+            case ADD:
+                return a + b;
+            case SUBTRACT:
+                return a - b;
+            case MULTIPLY:
+                return a * b;
+            case DIVIDE:
+                return b == 0d ? Double.NaN : a / b;
+            case POWER:
+                return Math.pow(a, b);
+            case MODULO:
+                return b == 0d ? Double.NaN : a % b;
+            case NEGATE:
+                return -a;
+            case SIN:
+                return Math.sin(a);
+            case COS:
+                return Math.cos(a);
+            case TAN:
+                return Math.tan(a);
+            case LOG:
+                return Math.log(a);
+            case LOG1P:
+                return Math.log1p(a);
+            case ABS:
+                return Math.abs(a);
+            case ACOS:
+                return Math.acos(a);
+            case ASIN:
+                return Math.asin(a);
+            case ATAN:
+                return Math.atan(a);
+            case CBRT:
+                return Math.cbrt(a);
+            case CEIL:
+                return Math.ceil(a);
+            case FLOOR:
+                return Math.floor(a);
+            case SINH:
+                return Math.sinh(a);
+            case SQRT:
+                return Math.sqrt(a);
+            case TANH:
+                return Math.tanh(a);
+            case COSH:
+                return Math.cosh(a);
+            case EXP:
+                return Math.exp(a);
+            case EXPM1:
+                return Math.expm1(a);
+            case LOG10:
+                return Math.log10(a);
+            case LOG2:
+                return Math.log(a) / LN2;
+            case SIGNUM:
+                return Math.signum(a);
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * @return new set of registers to be used in {@link #evaluate(double[])}. Arguments should be written to the
+     * first registers
+     */
+    @NonNull
+    double[] newRegisters() {
+        return registers.clone();
+    }
+
+    double evaluate(@NonNull double[] r) {
+        final int[] code = this.code;
+        for (int i = 0; i < code.length; i += INSTRUCTION_SIZE) {
+            r[code[i + 1]] = apply(code[i], r[code[i + 2]], r[code[i + 3]]);
+        }
+        return r[result];
+    }
+
+    /**
+     * Same as {@link #evaluate(double[])} but also calculates the derivative of the expression using dual numbers:
+     * <var>d</var> holds the derivatives of the registers and should be created with {@link #newDerivatives()}. The
+     * derivative of the result is returned by {@link #derivative(double[])}.
+     * <p/>
+     * The expression is differentiated by the arguments whose derivatives are 1 (usually only the first derivative
+     * is set to 1 and the others to 0).
+     */
+    double evaluate(@NonNull double[] r, @NonNull double[] d) {
+        final int[] code = this.code;
+        for (int i = 0; i < code.length; i += INSTRUCTION_SIZE) {
+            final int op = code[i];
+            final double a = r[code[i + 2]];
+            final double b = r[code[i + 3]];
+            final double da = d[code[i + 2]];
+            final double db = d[code[i + 3]];
+            final double value = apply(op, a, b);
+            // the destination might be one of the sources => it's written after the derivative is calculated
+            d[code[i + 1]] = da == 0d && db == 0d ? 0d : derivative(op, a, b, da, db, value);
+            r[code[i + 1]] = value;
+        }
+        return r[result];
+    }
+
+    double derivative(@NonNull double[] d) {
+        return d[result];
+    }
+
+    /**
+     * @return new set of derivatives of the registers to be used in {@link #evaluate(double[], double[])}, all of them
+     * are 0
+     */
+    @NonNull
+    double[] newDerivatives() {
+        return new double[registers.length];
+    }
+
+    /**
+     * @return derivative of op(a, b) where a' = da and b' = db, value = op(a, b)
+     */
+    private static double derivative(int op, double a, double b, double da, double db, double value) {
+        switch (op) {
+            case ADD:
+                return da + db;
+            case SUBTRACT:
+                return da - db;
+            case MULTIPLY:
+                return da * b + a * db;
+            case DIVIDE:
+                return (da * b - a * db) / (b * b);
+            case POWER:
+                if (db == 0d) {
+                    // (a^n)' = n * a^(n-1) * a'
+                    return b * Math.pow(a, b - 1) * da;
+                }
+                // (a^b)' = a^b * (b' * ln(a) + b * a' / a)
+                return value * (db * Math.log(a) + (da == 0d ? 0d : b * da / a));
+            case MODULO:
+                // a % b = a - b * trunc(a / b)
+                final double q = a / b;
+                return da - db * (q < 0 ? Math.ceil(q) : Math.floor(q));
+            case NEGATE:
+                return -da;
+            case SIN:
+                return Math.cos(a) * da;
+            case COS:
+                return -Math.sin(a) * da;
+            case TAN:
+                return (1 + value * value) * da;
+            case LOG:
+                return da / a;
+            case LOG1P:
+                return da / (1 + a);
+            case ABS:
+                return Math.signum(a) * da;
+            case ACOS:
+                return -da / Math.sqrt(1 - a * a);
+            case ASIN:
+                return da / Math.sqrt(1 - a * a);
+            case ATAN:
+                return da / (1 + a * a);
+            case CBRT:
+                return da / (3 * value * value);
+            case CEIL:
+            case FLOOR:
+            case SIGNUM:
+                // piecewise constant
+                return 0d;
+            case SINH:
+                return Math.cosh(a) * da;
+            case SQRT:
+                return da / (2 * value);
+            case TANH:
+                return (1 - value * value) * da;
+            case COSH:
+                return Math.sinh(a) * da;
+            case EXP:
+                return value * da;
+            case EXPM1:
+                return (value + 1) * da;
+            case LOG10:
+                return da / (a * LN10);
+            case LOG2:
+                return da / (a * LN2);
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Same as {@link #evaluate(double[])} but on intervals: the i-th register holds [min[i], max[i]]. Both arrays
+     * should be created with {@link #newRegisters()}, arguments should be written to their first registers.
+     * <var>out</var> is set to an enclosure of the values of the expression, see
+     * {@link org.solovyev.android.plotter.Function#evaluate(Interval, Interval)}. It is widened by
+     * {@link #INTERVAL_ULPS} ulps to account for rounding errors.
+     */
+    void evaluate(@NonNull double[] min, @NonNull double[] max, @NonNull Interval out) {
+        final int[] code = this.code;
+        for (int i = 0; i < code.length; i += INSTRUCTION_SIZE) {
+            final int a = code[i + 2];
+            final int b = code[i + 3];
+            apply(code[i], min, max, code[i + 1], min[a], max[a], min[b], max[b], a == b);
+        }
+        final double lower = min[result];
+        final double upper = max[result];
+        out.set(Double.isInfinite(lower) ? lower : lower - INTERVAL_ULPS * Math.ulp(lower), Double.isInfinite(upper) ? upper : upper + INTERVAL_ULPS * Math.ulp(upper));
+    }
+
+    /**
+     * Interval version of {@link #apply(int, double, double)}, the result is written to the <var>r</var>-th registers.
+     * Both operands are the same register if <var>same</var> is true (e.g. x*x), unary operations ignore the second
+     * operand. Empty operands have NaN bounds, the result is empty then.
+     */
+    private static void apply(int op, @NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double b0, double b1, boolean same) {
+        if (Double.isNaN(a0) || Double.isNaN(a1) || Double.isNaN(b0) || Double.isNaN(b1)) {
+            setEmpty(min, max, r);
+            return;
+        }
+        switch (op) {
+            case ADD:
+                setWidened(min, max, r, a0 + b0, a1 + b1);
+                break;
+            case SUBTRACT:
+                if (same) {
+                    set(min, max, r, 0d, 0d);
+                } else {
+                    setWidened(min, max, r, a0 - b1, a1 - b0);
+                }
+                break;
+            case MULTIPLY:
+                if (same) {
+                    applyEvenPower(min, max, r, a0, a1, 2d);
+                } else {
+                    multiply(min, max, r, a0, a1, b0, b1);
+                }
+                break;
+            case DIVIDE:
+                if (same) {
+                    // x/x is either 1 or NaN
+                    set(min, max, r, 1d, 1d);
+                } else {
+                    divide(min, max, r, a0, a1, b0, b1);
+                }
+                break;
+            case POWER:
+                power(min, max, r, a0, a1, b0, b1);
+                break;
+            case MODULO:
+                modulo(min, max, r, a0, a1, b0, b1);
+                break;
+            case NEGATE:
+                set(min, max, r, -a1, -a0);
+                break;
+            case SIN:
+                periodic(min, max, r, a0, a1, Math.sin(a0), Math.sin(a1), PI_2, -PI_2);
+                break;
+            case COS:
+                periodic(min, max, r, a0, a1, Math.cos(a0), Math.cos(a1), 0d, Math.PI);
+                break;
+            case TAN:
+                if (a1 - a0 >= Math.PI || contains(a0, a1, PI_2, Math.PI)) {
+                    // a pole or the whole period
+                    set(min, max, r, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+                } else {
+                    set(min, max, r, Math.tan(a0), Math.tan(a1));
+                }
+                break;
+            case ABS:
+                if (a0 >= 0) {
+                    set(min, max, r, a0, a1);
+                } else if (a1 <= 0) {
+                    set(min, max, r, -a1, -a0);
+                } else {
+                    set(min, max, r, 0d, Math.max(-a0, a1));
+                }
+                break;
+            case COSH:
+                if (a0 >= 0) {
+                    set(min, max, r, Math.cosh(a0), Math.cosh(a1));
+                } else if (a1 <= 0) {
+                    set(min, max, r, Math.cosh(a1), Math.cosh(a0));
+                } else {
+                    set(min, max, r, 1d, Math.cosh(Math.max(-a0, a1)));
+                }
+                break;
+            case ACOS:
+                if (a1 < -1d || a0 > 1d) {
+                    setEmpty(min, max, r);
+                } else {
+                    // decreasing
+                    set(min, max, r, Math.acos(Math.min(a1, 1d)), Math.acos(Math.max(a0, -1d)));
+                }
+                break;
+            case LOG:
+            case LOG10:
+            case LOG2:
+            case SQRT:
+                increasing(op, min, max, r, a0, a1, 0d, Double.POSITIVE_INFINITY);
+                break;
+            case LOG1P:
+                increasing(op, min, max, r, a0, a1, -1d, Double.POSITIVE_INFINITY);
+                break;
+            case ASIN:
+                increasing(op, min, max, r, a0, a1, -1d, 1d);
+                break;
+            case ATAN:
+            case CBRT:
+            case CEIL:
+            case FLOOR:
+            case SINH:
+            case TANH:
+            case EXP:
+            case EXPM1:
+            case SIGNUM:
+                increasing(op, min, max, r, a0, a1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static void set(@NonNull double[] min, @NonNull double[] max, int r, double lower, double upper) {
+        min[r] = lower;
+        max[r] = upper;
+    }
+
+    private static void setEmpty(@NonNull double[] min, @NonNull double[] max, int r) {
+        set(min, max, r, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Same as {@link #set(double[], double[], int, double, double)} but NaN bounds (e.g. from inf - inf) are replaced
+     * with infinities
+     */
+    private static void setWidened(@NonNull double[] min, @NonNull double[] max, int r, double lower, double upper) {
+        set(min, max, r, Double.isNaN(lower) ? Double.NEGATIVE_INFINITY : lower, Double.isNaN(upper) ? Double.POSITIVE_INFINITY : upper);
+    }
+
+    private static void increasing(int op, @NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double from, double to) {
+        if (a1 < from || a0 > to) {
+            // the function is not defined anywhere in the interval
+            setEmpty(min, max, r);
+            return;
+        }
+        set(min, max, r, apply(op, Math.max(a0, from), 0d), apply(op, Math.min(a1, to), 0d));
+    }
+
+    /**
+     * Interval version of a function with the period of 2*pi which is monotonic between its maximum and minimum
+     */
+    private static void periodic(@NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double f0, double f1, double maxAt, double minAt) {
+        if (Double.isInfinite(a0) || Double.isInfinite(a1) || a1 - a0 >= 2 * Math.PI) {
+            set(min, max, r, -1d, 1d);
+            return;
+        }
+        final double lower = contains(a0, a1, minAt, 2 * Math.PI) ? -1d : Math.min(f0, f1);
+        final double upper = contains(a0, a1, maxAt, 2 * Math.PI) ? 1d : Math.max(f0, f1);
+        set(min, max, r, lower, upper);
+    }
+
+    /**
+     * @return true if [a0, a1] contains x + k * period for some integer k
+     */
+    private static boolean contains(double a0, double a1, double x, double period) {
+        if (Double.isInfinite(a0) || Double.isInfinite(a1)) {
+            return true;
+        }
+        final double k = Math.ceil((a0 - x) / period);
+        return x + k * period <= a1;
+    }
+
+    private static double multiply(double a, double b) {
+        // 0 * inf is 0 as the infinite bound is never reached
+        return a == 0d || b == 0d ? 0d : a * b;
+    }
+
+    private static void multiply(@NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double b0, double b1) {
+        final double p0 = multiply(a0, b0);
+        final double p1 = multiply(a0, b1);
+        final double p2 = multiply(a1, b0);
+        final double p3 = multiply(a1, b1);
+        set(min, max, r, Math.min(Math.min(p0, p1), Math.min(p2, p3)), Math.max(Math.max(p0, p1), Math.max(p2, p3)));
+    }
+
+    private static void divide(@NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double b0, double b1) {
+        if (b0 > 0d || b1 < 0d) {
+            multiply(min, max, r, a0, a1, 1d / b1, 1d / b0);
+        } else if (b0 == 0d && b1 == 0d) {
+            // division by zero is NaN, see apply(int, double, double)
+            setEmpty(min, max, r);
+        } else {
+            // a pole
+            set(min, max, r, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    private static void power(@NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double b0, double b1) {
+        if (b0 != b1) {
+            if (a0 > 0d) {
+                // a^b = e^(b * ln(a))
+                multiply(min, max, r, Math.log(a0), Math.log(a1), b0, b1);
+                set(min, max, r, Math.exp(min[r]), Math.exp(max[r]));
+            } else {
+                set(min, max, r, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            }
+            return;
+        }
+        final double n = b0;
+        if (n == 0d) {
+            set(min, max, r, 1d, 1d);
+        } else if (n != Math.rint(n) || Double.isInfinite(n)) {
+            // negative numbers can't be raised to a fractional power (the result is NaN)
+            if (a1 < 0d) {
+                setEmpty(min, max, r);
+            } else if (n > 0d) {
+                set(min, max, r, Math.pow(Math.max(a0, 0d), n), Math.pow(a1, n));
+            } else {
+                set(min, max, r, Math.pow(a1, n), Math.pow(Math.max(a0, 0d), n));
+            }
+        } else if (n > 0d) {
+            if (n % 2d == 0d) {
+                applyEvenPower(min, max, r, a0, a1, n);
+            } else {
+                set(min, max, r, Math.pow(a0, n), Math.pow(a1, n));
+            }
+        } else {
+            // x^-n = 1/x^n
+            if (n % 2d == 0d) {
+                applyEvenPower(min, max, r, a0, a1, -n);
+            } else {
+                set(min, max, r, Math.pow(a0, -n), Math.pow(a1, -n));
+            }
+            final double p0 = min[r];
+            final double p1 = max[r];
+            if (p0 == 0d && p1 > 0d) {
+                set(min, max, r, 1d / p1, Double.POSITIVE_INFINITY);
+            } else if (p1 == 0d && p0 < 0d) {
+                set(min, max, r, Double.NEGATIVE_INFINITY, 1d / p0);
+            } else {
+                divide(min, max, r, 1d, 1d, p0, p1);
+            }
+        }
+    }
+
+    private static void applyEvenPower(@NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double n) {
+        if (a0 >= 0d) {
+            set(min, max, r, Math.pow(a0, n), Math.pow(a1, n));
+        } else if (a1 <= 0d) {
+            set(min, max, r, Math.pow(a1, n), Math.pow(a0, n));
+        } else {
+            set(min, max, r, 0d, Math.max(Math.pow(a0, n), Math.pow(a1, n)));
+        }
+    }
+
+    private static void modulo(@NonNull double[] min, @NonNull double[] max, int r, double a0, double a1, double b0, double b1) {
+        if (b0 == b1 && b0 != 0d && !Double.isInfinite(a0) && !Double.isInfinite(a1)) {
+            final double n = Math.abs(b0);
+            // the remainder is increasing within one period (it has the sign of the dividend)
+            if ((a0 >= 0d && Math.floor(a0 / n) == Math.floor(a1 / n)) || (a1 <= 0d && Math.ceil(a0 / n) == Math.ceil(a1 / n))) {
+                set(min, max, r, a0 % n, a1 % n);
+                return;
+            }
+        }
+        // |a % b| <= min(|a|, |b|)
+        final double m = Math.max(Math.abs(b0), Math.abs(b1));
+        set(min, max, r, a0 >= 0d ? 0d : Math.max(a0, -m), a1 <= 0d ? 0d : Math.min(a1, m));
+    }
+
+    private static final class Compiler {
+        @NonNull
+        private final String[] arguments;
+        @NonNull
+        private final List<Double> constants = new ArrayList<>();
+        @NonNull
+        private final List<int[]> instructions = new ArrayList<>();
+        // registers of the constants are not known until the end of the compilation => they are encoded as negative
+        // numbers: -1 - (index of the constant)
+        @NonNull
+        private final int[] stack;
+        private int stackSize;
+        private int temporaries;
+        @NonNull
+        private int[] freeTemporaries = new int[4];
+        private int freeTemporariesSize;
+
+        private Compiler(@NonNull String[] arguments) {
+            this.arguments = arguments;
+            this.stack = new int[64];
+        }
+
+        @Nullable
+        private static Integer getFunctionCode(@NonNull Function function) {
+            if (function.getNumArguments() == 2) {
+                return "pow".equals(function.getName()) ? POWER : null;
+            }
+            if (function.getNumArguments() != 1) {
+                return null;
+            }
+            switch (function.getName()) {
+                case "sin":
+                    return SIN;
+                case "cos":
+                    return COS;
+                case "tan":
+                    return TAN;
+                case "log":
+                    return LOG;
+                case "log1p":
+                    return LOG1P;
+                case "abs":
+                    return ABS;
+                case "acos":
+                    return ACOS;
+                case "asin":
+                    return ASIN;
+                case "atan":
+                    return ATAN;
+                case "cbrt":
+                    return CBRT;
+                case "ceil":
+                    return CEIL;
+                case "floor":
+                    return FLOOR;
+                case "sinh":
+                    return SINH;
+                case "sqrt":
+                    return SQRT;
+                case "tanh":
+                    return TANH;
+                case "cosh":
+                    return COSH;
+                case "exp":
+                    return EXP;
+                case "expm1":
+                    return EXPM1;
+                case "log10":
+                    return LOG10;
+                case "log2":
+                    return LOG2;
+                case "signum":
+                    return SIGNUM;
+            }
+            return null;
+        }
+
+        @Nullable
+        private static Integer getOperatorCode(@NonNull Operator operator) {
+            final String symbol = operator.getSymbol();
+            if (symbol.length() != 1) {
+                return null;
+            }
+            if (operator.getNumOperands() == 1) {
+                switch (symbol.charAt(0)) {
+                    case '-':
+                        return NEGATE;
+                    case '+':
+                        // unary plus is a no-op
+                        return -1;
+                }
+                return null;
+            }
+            if (operator.getNumOperands() != 2) {
+                return null;
+            }
+            switch (symbol.charAt(0)) {
+                case '+':
+                    return ADD;
+                case '-':
+                    return SUBTRACT;
+                case '*':
+                    return MULTIPLY;
+                case '/':
+                    return DIVIDE;
+                case '^':
+                    return POWER;
+                case '%':
+                    return MODULO;
+            }
+            return null;
+        }
+
+        @Nullable
+        CompiledExpression compile(@NonNull Token[] tokens) {
+            for (Token token : tokens) {
+                switch (token.getType()) {
+                    case Token.TOKEN_NUMBER:
+                        if (!push(constant(((NumberToken) token).getValue()))) {
+                            return null;
+                        }
+                        break;
+                    case Token.TOKEN_VARIABLE:
+                        final Integer variable = variable(((VariableToken) token).getName());
+                        if (variable == null || !push(variable)) {
+                            return null;
+                        }
+                        break;
+                    case Token.TOKEN_OPERATOR:
+                        final Operator operator = ((OperatorToken) token).getOperator();
+                        final Integer operatorCode = getOperatorCode(operator);
+                        if (operatorCode == null || !emit(operatorCode, operator.getNumOperands())) {
+                            return null;
+                        }
+                        break;
+                    case Token.TOKEN_FUNCTION:
+                        final Function function = ((FunctionToken) token).getFunction();
+                        final Integer functionCode = getFunctionCode(function);
+                        if (functionCode == null || !emit(functionCode, function.getNumArguments())) {
+                            return null;
+                        }
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            if (stackSize != 1) {
+                return null;
+            }
+            return link();
+        }
+
+        @Nullable
+        private Integer variable(@NonNull String name) {
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i].equals(name)) {
+                    return i;
+                }
+            }
+            final Map<String, Double> builtinConstants = Constants.getBuiltinConstants();
+            final Double value = builtinConstants.get(name);
+            if (value == null) {
+                return null;
+            }
+            return constant(value);
+        }
+
+        private int constant(double value) {
+            constants.add(value);
+            return -constants.size();
+        }
+
+        private boolean push(int register) {
+            if (stackSize == stack.length) {
+                return false;
+            }
+            stack[stackSize++] = register;
+            return true;
+        }
+
+        private boolean emit(int op, int operands) {
+            if (stackSize < operands) {
+                return false;
+            }
+            if (op < 0) {
+                // nothing to do: the value stays on the stack
+                return true;
+            }
+            final int b = operands == 2 ? stack[--stackSize] : 0;
+            final int a = stack[--stackSize];
+            if (isConstant(a) && (operands == 1 || isConstant(b))) {
+                // both operands are known => let's calculate the value now
+                final double value = apply(op, getConstant(a), operands == 2 ? getConstant(b) : 0d);
+                return push(constant(value));
+            }
+            release(a);
+            if (operands == 2) {
+                release(b);
+            }
+            final int destination = obtainTemporary();
+            instructions.add(new int[]{op, destination, a, operands == 2 ? b : a});
+            return push(destination);
+        }
+
+        private boolean isConstant(int register) {
+            return register < 0;
+        }
+
+        private double getConstant(int register) {
+            return constants.get(-register - 1);
+        }
+
+        private boolean isTemporary(int register) {
+            return register >= arguments.length;
+        }
+
+        private void release(int register) {
+            if (!isTemporary(register)) {
+                return;
+            }
+            if (freeTemporariesSize == freeTemporaries.length) {
+                final int[] newFreeTemporaries = new int[2 * freeTemporaries.length];
+                System.arraycopy(freeTemporaries, 0, newFreeTemporaries, 0, freeTemporariesSize);
+                freeTemporaries = newFreeTemporaries;
+            }
+            freeTemporaries[freeTemporariesSize++] = register;
+        }
+
+        private int obtainTemporary() {
+            if (freeTemporariesSize > 0) {
+                return freeTemporaries[--freeTemporariesSize];
+            }
+            // temporaries are numbered after arguments, constants will be placed after temporaries while linking
+            return arguments.length + temporaries++;
+        }
+
+        @NonNull
+        private CompiledExpression link() {
+            final int constantsStart = arguments.length + temporaries;
+            final double[] registers = new double[constantsStart + constants.size()];
+            for (int i = 0; i < constants.size(); i++) {
+                registers[constantsStart + i] = constants.get(i);
+            }
+            final int[] code = new int[instructions.size() * INSTRUCTION_SIZE];
+            int pc = 0;
+            for (int[] instruction : instructions) {
+                code[pc++] = instruction[0];
+                code[pc++] = resolve(instruction[1], constantsStart);
+                code[pc++] = resolve(instruction[2], constantsStart);
+                code[pc++] = resolve(instruction[3], constantsStart);
+            }
+            return new CompiledExpression(code, registers, resolve(stack[0], constantsStart));
+        }
+
+        private int resolve(int register, int constantsStart) {
+            return isConstant(register) ? constantsStart - register - 1 : register;
+        }
+    }
+}
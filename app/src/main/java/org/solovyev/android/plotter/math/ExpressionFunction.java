@@ -12,6 +12,8 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.solovyev.android.plotter.Check;
 import org.solovyev.android.plotter.Function;
+import org.solovyev.android.plotter.Function1;
+import org.solovyev.android.plotter.Interval;
 
 public final class ExpressionFunction extends Function {
 
@@ -21,6 +23,19 @@ public final class ExpressionFunction extends Function {
 
     @NonNull
     private final Expression expression;
+    // compiled form of the expression, null if the expression can't be compiled and exp4j should be used instead
+    @Nullable
+    private final CompiledExpression compiled;
+    @Nullable
+    private final double[] registers;
+    // derivatives of the registers, created on the first use
+    @Nullable
+    private double[] derivatives;
+    // registers for the evaluation on intervals, created on the first use
+    @Nullable
+    private double[] minRegisters;
+    @Nullable
+    private double[] maxRegisters;
     @NonNull
     private final String[] arguments;
     @NonNull
@@ -34,11 +49,23 @@ public final class ExpressionFunction extends Function {
             builder.variable(variable);
         }
         this.expression = builder.build();
+        this.compiled = CompiledExpression.compile(expression, arguments);
+        this.registers = compiled != null ? compiled.newRegisters() : null;
         this.arguments = new String[arguments.length];
         System.arraycopy(arguments, 0, this.arguments, 0, arguments.length);
         this.expressionString = expression;
     }
 
+    private ExpressionFunction(@NonNull ExpressionFunction that) {
+        super(that);
+        // compiled expression is immutable and can be shared, registers and exp4j's variables can't
+        this.expression = new Expression(that.expression);
+        this.compiled = that.compiled;
+        this.registers = compiled != null ? compiled.newRegisters() : null;
+        this.arguments = that.arguments;
+        this.expressionString = that.expressionString;
+    }
+
     @NonNull
     public static ExpressionFunction create(@NonNull String expression, @NonNull String... arguments) {
         return new ExpressionFunction(null, expression, arguments);
@@ -78,23 +105,165 @@ public final class ExpressionFunction extends Function {
 
     @Override
     public float evaluate() {
+        if (compiled != null) {
+            return (float) compiled.evaluate(registers);
+        }
         return (float) expression.evaluate();
     }
 
     @Override
     public float evaluate(float x) {
-        expression.setVariable(arguments[0], x);
-        try {
-            return (float) expression.evaluate();
-        } catch (RuntimeException e) {
-            return Float.NaN;
+        if (compiled != null) {
+            registers[0] = x;
+            return (float) compiled.evaluate(registers);
         }
+        expression.setVariable(arguments[0], x);
+        return evaluateSafely();
     }
 
     @Override
     public float evaluate(float x, float y) {
+        if (compiled != null) {
+            registers[0] = x;
+            registers[1] = y;
+            return (float) compiled.evaluate(registers);
+        }
         expression.setVariable(arguments[0], x);
         expression.setVariable(arguments[1], y);
+        return evaluateSafely();
+    }
+
+    @Override
+    public double evaluate(double x) {
+        if (compiled != null) {
+            if (arguments.length > 0) {
+                registers[0] = x;
+            }
+            if (arguments.length > 1) {
+                registers[1] = 0d;
+            }
+            return compiled.evaluate(registers);
+        }
+        if (arguments.length != 1) {
+            return super.evaluate(x);
+        }
+        expression.setVariable(arguments[0], x);
+        try {
+            return expression.evaluate();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    @Override
+    public void evaluate(@NonNull double[] xs, int offset, int length, @NonNull double[] out) {
+        if (compiled == null) {
+            super.evaluate(xs, offset, length, out);
+            return;
+        }
+        final double[] registers = this.registers;
+        if (arguments.length > 1) {
+            registers[1] = 0d;
+        }
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (arguments.length > 0) {
+                registers[0] = xs[i];
+            }
+            out[i] = compiled.evaluate(registers);
+        }
+    }
+
+    @Override
+    public void evaluate(@NonNull float[] xs, float y, int offset, int length, @NonNull float[] out) {
+        if (arguments.length == 0) {
+            super.evaluate(xs, y, offset, length, out);
+            return;
+        }
+        final int end = offset + length;
+        if (compiled != null) {
+            final double[] registers = this.registers;
+            if (arguments.length > 1) {
+                registers[1] = y;
+            }
+            for (int i = offset; i < end; i++) {
+                registers[0] = xs[i];
+                out[i] = (float) compiled.evaluate(registers);
+            }
+            return;
+        }
+        final String xName = arguments[0];
+        if (arguments.length > 1) {
+            expression.setVariable(arguments[1], y);
+        }
+        for (int i = offset; i < end; i++) {
+            expression.setVariable(xName, xs[i]);
+            out[i] = evaluateSafely();
+        }
+    }
+
+    @Override
+    public boolean evaluate(@NonNull double[] xs, int offset, int length, @NonNull double[] out, @NonNull double[] derivatives) {
+        // exp4j can't differentiate
+        if (compiled == null || arguments.length > 1) {
+            return false;
+        }
+        if (this.derivatives == null) {
+            this.derivatives = compiled.newDerivatives();
+        }
+        final double[] registers = this.registers;
+        final double[] d = this.derivatives;
+        if (arguments.length > 0) {
+            d[0] = 1d;
+        }
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (arguments.length > 0) {
+                registers[0] = xs[i];
+            }
+            out[i] = compiled.evaluate(registers, d);
+            derivatives[i] = compiled.derivative(d);
+        }
+        return true;
+    }
+
+    /**
+     * @return derivative of the function which is calculated from the compiled expression (i.e. without parsing
+     * anything), null if the expression can't be differentiated
+     */
+    @Nullable
+    public Function derivative() {
+        if (compiled == null || arguments.length != 1) {
+            return null;
+        }
+        return new Derivative(this);
+    }
+
+    @Override
+    public boolean evaluate(@NonNull Interval x, @NonNull Interval out) {
+        // exp4j can't evaluate on intervals
+        if (compiled == null || arguments.length > 1) {
+            return false;
+        }
+        if (minRegisters == null || maxRegisters == null) {
+            minRegisters = compiled.newRegisters();
+            maxRegisters = compiled.newRegisters();
+        }
+        if (arguments.length > 0) {
+            minRegisters[0] = x.min;
+            maxRegisters[0] = x.max;
+        }
+        compiled.evaluate(minRegisters, maxRegisters, out);
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public ExpressionFunction newEvaluator() {
+        return new ExpressionFunction(this);
+    }
+
+    private float evaluateSafely() {
         try {
             return (float) expression.evaluate();
         } catch (RuntimeException e) {
@@ -127,4 +296,44 @@ public final class ExpressionFunction extends Function {
     public String getExpressionString() {
         return expressionString;
     }
+
+    private static final class Derivative extends Function1 {
+        @NonNull
+        private final ExpressionFunction function;
+        @NonNull
+        private final double[] x = new double[1];
+        @NonNull
+        private final double[] y = new double[1];
+        @NonNull
+        private final double[] d = new double[1];
+
+        Derivative(@NonNull ExpressionFunction function) {
+            super("(" + function.getName() + ")'");
+            // the plotted function might be evaluated concurrently => the derivative has its own registers
+            this.function = function.newEvaluator();
+        }
+
+        private Derivative(@NonNull Derivative that) {
+            super(that);
+            this.function = that.function.newEvaluator();
+        }
+
+        @Override
+        public float evaluate(float x) {
+            return (float) evaluate((double) x);
+        }
+
+        @Override
+        public double evaluate(double x) {
+            this.x[0] = x;
+            function.evaluate(this.x, 0, 1, y, d);
+            return d[0];
+        }
+
+        @NonNull
+        @Override
+        public Function newEvaluator() {
+            return new Derivative(this);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package org.solovyev.android.plotter.math;
+
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.solovyev.android.plotter.Interval;
+
+@RunWith(RobolectricTestRunner.class)
+public class CompiledExpressionTest {
+
+    @Test
+    public void testShouldEvaluateSameValuesAsExp4j() throws Exception {
+        assertSameValues("1/(x + 1)/(x - 1)^6");
+        assertSameValues("sin(1/x)");
+        assertSameValues("pi*x");
+        assertSameValues("-x^2");
+        assertSameValues("2^-x");
+        assertSameValues("+x*3");
+        assertSameValues("x%0");
+        assertSameValues("pow(x, 2) + log2(x)*e");
+        assertSameValues("signum(x) - abs(-x)");
+        assertSameValues("sqrt(x) - cbrt(x) + x*x*x*x*x*x*x");
+    }
+
+    @Test
+    public void testShouldEvaluateTwoArguments() throws Exception {
+        final CompiledExpression compiled = CompiledExpression.compile("x*y + 1", "x", "y");
+        Assert.assertNotNull(compiled);
+        final double[] registers = compiled.newRegisters();
+        registers[0] = 2;
+        registers[1] = 3;
+        Assert.assertEquals(7d, compiled.evaluate(registers), 0d);
+    }
+
+    @Test
+    public void testShouldNotCompileInvalidExpressions() throws Exception {
+        Assert.assertNull(CompiledExpression.compile("x+", "x"));
+        Assert.assertNull(CompiledExpression.compile("foo(x)", "x"));
+        Assert.assertNull(CompiledExpression.compile("y", "x"));
+    }
+
+    @Test
+    public void testIntervalShouldEncloseValues() throws Exception {
+        assertEnclosesValues("1/(x + 1)/(x - 1)^6", -0.5f, 0.5f);
+        assertEnclosesValues("sin(1/x)", 0.01f, 0.3f);
+        assertEnclosesValues("x*x - 3*x", -2f, 4f);
+        assertEnclosesValues("cos(x) + tan(x/2)", 1f, 3f);
+        assertEnclosesValues("sqrt(x) + log(x)", -1f, 2f);
+        assertEnclosesValues("x^-2 + x%3", 0.5f, 7f);
+        assertEnclosesValues("2^x - abs(x)^x", 0.1f, 3f);
+    }
+
+    @Test
+    public void testIntervalShouldBeExactForMonotonicFunctions() throws Exception {
+        final Interval y = evaluate("x*x", -1f, 2f);
+        Assert.assertEquals(0f, y.min, 1e-6f);
+        Assert.assertEquals(4f, y.max, 1e-6f);
+        final Interval sin = evaluate("sin(x)", 0f, 2f);
+        Assert.assertEquals(0f, sin.min, 1e-6f);
+        Assert.assertEquals(1f, sin.max, 1e-6f);
+    }
+
+    @Test
+    public void testIntervalShouldBeUnboundedAroundPoles() throws Exception {
+        Assert.assertFalse(evaluate("tan(x)", 1.5f, 1.6f).isBounded());
+        Assert.assertFalse(evaluate("1/(x - 1)", 0.9f, 1.1f).isBounded());
+        Assert.assertFalse(evaluate("x^-2", -0.1f, 0.1f).isBounded());
+        Assert.assertTrue(evaluate("tan(x)", 1.4f, 1.5f).isBounded());
+        Assert.assertTrue(evaluate("1/(x*x + 1)", -1f, 1f).isBounded());
+    }
+
+    @Test
+    public void testIntervalShouldBeEmptyOutsideOfDomain() throws Exception {
+        Assert.assertTrue(evaluate("sqrt(x)", -2f, -1f).isEmpty());
+        Assert.assertTrue(evaluate("log(x) + 1", -2f, -1f).isEmpty());
+        Assert.assertTrue(evaluate("asin(x)", 2f, 3f).isEmpty());
+        Assert.assertFalse(evaluate("sqrt(x)", -2f, 1f).isEmpty());
+    }
+
+    @Test
+    public void testDerivativeShouldMatchFiniteDifferences() throws Exception {
+        assertDerivative("x^3 - 3*x");
+        assertDerivative("sin(x) * x^2 - x^3 / 7");
+        assertDerivative("exp(-x*x) / (1 + x*x)");
+        assertDerivative("sqrt(x*x + 1) + log(x*x + 2)");
+        assertDerivative("tan(x / 4) + atan(x) + cos(2 * x)");
+        assertDerivative("2^x + x^x");
+    }
+
+    private static void assertDerivative(String expression) {
+        final CompiledExpression compiled = CompiledExpression.compile(expression, "x");
+        Assert.assertNotNull(compiled);
+        final double[] registers = compiled.newRegisters();
+        final double[] derivatives = compiled.newDerivatives();
+        final double h = 1e-6;
+        for (double x = 0.13; x <= 3; x += 0.37) {
+            registers[0] = x + h;
+            final double right = compiled.evaluate(registers);
+            registers[0] = x - h;
+            final double left = compiled.evaluate(registers);
+            final double expected = (right - left) / (2 * h);
+
+            registers[0] = x;
+            derivatives[0] = 1;
+            compiled.evaluate(registers, derivatives);
+            final double actual = compiled.derivative(derivatives);
+            Assert.assertEquals(expression + ", x=" + x, expected, actual, Math.max(1, Math.abs(expected)) * 1e-5);
+        }
+    }
+
+    private static Interval evaluate(String expression, float min, float max) {
+        final CompiledExpression compiled = CompiledExpression.compile(expression, "x");
+        Assert.assertNotNull(compiled);
+        final double[] mins = compiled.newRegisters();
+        final double[] maxs = compiled.newRegisters();
+        mins[0] = min;
+        maxs[0] = max;
+        final Interval result = new Interval();
+        compiled.evaluate(mins, maxs, result);
+        return result;
+    }
+
+    private static void assertEnclosesValues(String expression, float min, float max) {
+        final Interval y = evaluate(expression, min, max);
+        final CompiledExpression compiled = CompiledExpression.compile(expression, "x");
+        Assert.assertNotNull(compiled);
+        final double[] registers = compiled.newRegisters();
+        for (int i = 0; i <= 100; i++) {
+            registers[0] = min + i * (max - min) / 100;
+            final double value = compiled.evaluate(registers);
+            if (!Double.isNaN(value)) {
+                Assert.assertTrue(expression + ": " + value + " is not in " + y, y.contains(value));
+            }
+        }
+    }
+
+    private static void assertSameValues(String expression) {
+        final CompiledExpression compiled = CompiledExpression.compile(expression, "x");
+        Assert.assertNotNull(compiled);
+        final Expression expected = new ExpressionBuilder(expression).variable("x").build();
+        final double[] registers = compiled.newRegisters();
+        for (double x = -5; x <= 5; x += 0.37) {
+            registers[0] = x;
+            final double actual = compiled.evaluate(registers);
+            double expectedValue;
+            try {
+                expectedValue = expected.setVariable("x", x).evaluate();
+            } catch (ArithmeticException e) {
+                expectedValue = Double.NaN;
+            }
+            Assert.assertEquals(expression + ", x=" + x, expectedValue, actual, Math.max(1, Math.abs(expectedValue)) * 1e-9);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.solovyev.android.plotter.math;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.solovyev.android.plotter.Function;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class ExpressionFunctionTest {
+
+    @Test
+    public void testEvaluatorShouldHaveSameIdAndValues() throws Exception {
+        final ExpressionFunction function = ExpressionFunction.createNamed("test", "x*y + sin(x)", "x", "y");
+        final ExpressionFunction evaluator = function.newEvaluator();
+        Assert.assertNotSame(function, evaluator);
+        Assert.assertEquals(function.getId(), evaluator.getId());
+        Assert.assertEquals(function.getName(), evaluator.getName());
+        for (float x = -2; x <= 2; x += 0.5f) {
+            Assert.assertEquals(function.evaluate(x, 3), evaluator.evaluate(x, 3), 0f);
+        }
+    }
+
+    @Test
+    public void testEvaluatorsShouldNotShareState() throws Exception {
+        final ExpressionFunction function = ExpressionFunction.create("x^2 * sin(x) + cos(3 * x)", "x");
+        assertSameAsSerial(function, function.newEvaluator());
+    }
+
+    @Test
+    public void testShouldEvaluateInDoublePrecision() throws Exception {
+        final ExpressionFunction function = ExpressionFunction.create("(x - 100) * 10^9", "x");
+        Assert.assertEquals(1d, function.evaluate(100.000000001d), 1e-3);
+        final double[] xs = {100.000000001d, 100.000000002d};
+        final double[] out = new double[xs.length];
+        function.evaluate(xs, 0, xs.length, out);
+        Assert.assertArrayEquals(new double[]{1d, 2d}, out, 1e-3);
+    }
+
+    @Test
+    public void testShouldCalculateDerivative() throws Exception {
+        final ExpressionFunction function = ExpressionFunction.create("x^2 * sin(x) + cos(3 * x)", "x");
+        final Function derivative = function.derivative();
+        Assert.assertNotNull(derivative);
+        final double h = 1e-6;
+        for (double x = -5; x <= 5; x += 0.25) {
+            final double expected = (function.evaluate(x + h) - function.evaluate(x - h)) / (2 * h);
+            final double actual = derivative.evaluate(x);
+            // the function is evaluated in between and must not affect the derivative
+            function.evaluate(x + 1);
+            Assert.assertEquals(expected, actual, 1e-6 * Math.max(1, Math.abs(expected)));
+            Assert.assertEquals(actual, derivative.evaluate(x), 0);
+        }
+    }
+
+    @Test
+    public void testDerivativeShouldNotShareStateWithFunction() throws Exception {
+        final ExpressionFunction function = ExpressionFunction.create("x^2 * sin(x) + cos(3 * x)", "x");
+        final Function derivative = function.derivative();
+        Assert.assertNotNull(derivative);
+        // the function and its derivative might be plotted at the same time
+        assertSameAsSerial(function, derivative);
+    }
+
+    /**
+     * Evaluates <var>first</var> and <var>second</var> on two threads at the same time and checks that the results
+     * are the same as if the functions were evaluated one after another
+     */
+    private static void assertSameAsSerial(@NonNull final Function first, @NonNull final Function second) throws Exception {
+        final double[] xs = new double[10000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = -10 + 20d * i / xs.length;
+        }
+        final double[] firstExpected = new double[xs.length];
+        final double[] secondExpected = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            firstExpected[i] = first.evaluate(xs[i]);
+            secondExpected[i] = second.evaluate(xs[i]);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger mismatches = new AtomicInteger();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                await(start);
+                mismatches.addAndGet(countMismatches(second, xs, secondExpected));
+            }
+        });
+        thread.start();
+        start.countDown();
+        mismatches.addAndGet(countMismatches(first, xs, firstExpected));
+        thread.join();
+        Assert.assertEquals(0, mismatches.get());
+    }
+
+    private static int countMismatches(@NonNull Function function, @NonNull double[] xs, @NonNull double[] expected) {
+        int mismatches = 0;
+        for (int iteration = 0; iteration < 100; iteration++) {
+            for (int i = 0; i < xs.length; i++) {
+                if (Double.compare(expected[i], function.evaluate(xs[i])) != 0) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static void await(@NonNull CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.solovyev.android.plotter.meshes;
+
+import android.graphics.PointF;
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.solovyev.android.plotter.Dimensions;
+import org.solovyev.android.plotter.Frustum;
+import org.solovyev.android.plotter.Function;
+import org.solovyev.android.plotter.Function1;
+import org.solovyev.android.plotter.RectSize;
+import org.solovyev.android.plotter.RectSizeF;
+import org.solovyev.android.plotter.math.ExpressionFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class BaseCurveTest {
+
+    @Test
+    public void testShouldNotRefineLine() throws Exception {
+        final Graph graph = fillGraph(new TestFunction() {
+            @Override
+            public double evaluate(double x) {
+                return 2 * x + 1;
+            }
+        }, 10f);
+
+        final float step = graph.vertices[graph.position(1)] - graph.vertices[graph.position(0)];
+        for (int i = 1; i < graph.length() / 3; i++) {
+            assertEquals(step, graph.vertices[graph.position(i)] - graph.vertices[graph.position(i - 1)], step / 1000);
+        }
+    }
+
+    @Test
+    public void testShouldRefineOscillatingCurve() throws Exception {
+        final TestFunction function = new TestFunction() {
+            @Override
+            public double evaluate(double x) {
+                return Math.sin(1 / x);
+            }
+        };
+        final Graph graph = fillGraph(function, 10f);
+        final int points = graph.length() / 3;
+
+        float step = graph.vertices[graph.position(1)] - graph.vertices[graph.position(0)];
+        float minStep = step;
+        for (int i = 1; i < points; i++) {
+            minStep = Math.min(minStep, graph.vertices[graph.position(i)] - graph.vertices[graph.position(i - 1)]);
+        }
+        assertTrue(minStep < step / 32);
+        // middle points are calculated level by level, not one by one
+        assertTrue(function.calls < function.points / 10);
+    }
+
+    @Test
+    public void testShouldNotExceedBudget() throws Exception {
+        final int coarsePoints = fillGraph(new TestFunction() {
+            @Override
+            public double evaluate(double x) {
+                return x;
+            }
+        }, 10f).length() / 3;
+        // each interval has a pole => the sampling would refine everything if there was no limit
+        final Graph graph = fillGraph(new TestFunction() {
+            @Override
+            public double evaluate(double x) {
+                return Math.tan(1000 * x);
+            }
+        }, 10f);
+
+        int points = 0;
+        for (int i = 0; i < graph.length() / 3; i++) {
+            if (!Float.isNaN(graph.vertices[graph.position(i) + 1])) {
+                points++;
+            }
+        }
+        assertTrue(points <= (1 + CurveSampler.MAX_POINTS_PER_STEP) * coarsePoints);
+    }
+
+    @Test
+    public void testShouldInterruptCurveAtPoles() throws Exception {
+        // poles are so frequent that the adaptive sampling runs out of its budget
+        final Graph graph = fillGraph(ExpressionFunction.create("tan(50*x)", "x"), 10f);
+
+        boolean previousFinite = false;
+        long previousBranch = 0;
+        for (int i = 0; i < graph.length() / 3; i++) {
+            final int position = graph.position(i);
+            final float y = graph.vertices[position + 1];
+            final boolean finite = !Float.isNaN(y) && !Float.isInfinite(y);
+            // poles of tan(50*x) are in (k + 1/2) * pi / 50
+            final long branch = (long) Math.floor(50 * graph.vertices[position] / Math.PI + 0.5);
+            if (previousFinite && finite) {
+                assertEquals("Pole is not interrupted at x=" + graph.vertices[position], previousBranch, branch);
+            }
+            previousFinite = finite;
+            previousBranch = branch;
+        }
+    }
+
+    @Test
+    public void testShouldNotQuantizeDeeplyZoomedCurve() throws Exception {
+        // the graph is 1e-6 wide around x=100 where floats are ~1e-5 apart. Scene center is moved by less than the
+        // precision of floats
+        final float zoom = 1e-7f;
+        final Dimensions dimensions = Dimensions.empty().copy()
+                .updateScene(RectSize.create(1000, 500), new RectSizeF(Frustum.SCENE_WIDTH * zoom, Frustum.SCENE_WIDTH * zoom / 2), 20d + 1e-8, 0d);
+        assertEquals(1e-6f, dimensions.graph.width(), 1e-12f);
+        assertEquals(100d + 5e-8, dimensions.graph.centerX(), 1e-12);
+
+        final Graph graph = fillGraph(new TestFunction() {
+            @Override
+            public double evaluate(double x) {
+                return x - 100;
+            }
+        }, dimensions);
+
+        final int points = graph.length() / 3;
+        assertTrue(points > 1);
+        for (int i = 1; i < points; i++) {
+            final int position = graph.position(i);
+            final int previous = graph.position(i - 1);
+            final float dx = graph.vertices[position] - graph.vertices[previous];
+            final float dy = graph.vertices[position + 1] - graph.vertices[previous + 1];
+            // stairs would have either horizontal or vertical steps
+            assertTrue("Points are not distinct at i=" + i, dx > 0);
+            assertEquals(1f, dy / dx, 1e-3f);
+        }
+        // the whole graph is covered
+        final float span = graph.vertices[graph.position(points - 1)] - graph.vertices[graph.position(0)];
+        assertTrue(span >= dimensions.graph.width());
+    }
+
+    @Test
+    public void testShouldDrawCurveWhichIsPannedVertically() throws Exception {
+        final Dimensions dimensions = makeDimensions(10f);
+        final FunctionGraph2d curve = FunctionGraph2d.create(dimensions, new TestFunction() {
+            @Override
+            public double evaluate(double x) {
+                return Math.sin(x);
+            }
+        }, MeshSpec.DEFAULT_POINTS_COUNT);
+        curve.onInit();
+        assertTrue(curve.canDraw(dimensions));
+
+        // vertices are not clipped vertically => the curve can be drawn even far above the axis grid
+        final RectSize view = dimensions.scene.view;
+        final RectSizeF size = dimensions.scene.size;
+        assertTrue(curve.canDraw(dimensions.updateScene(view, size, dimensions.scene.centerX(), 1000d * size.height)));
+        assertTrue(curve.canDraw(dimensions.updateScene(view, size, dimensions.scene.centerX(), -1000d * size.height)));
+        // but not if it was panned horizontally beyond the calculated range
+        assertFalse(curve.canDraw(dimensions.updateScene(view, size, 1000d * size.width, dimensions.scene.centerY())));
+    }
+
+    @NonNull
+    private static Graph fillGraph(@NonNull Function function, float width) {
+        // the graph is centered in (0, 0) => vertices are not shifted relative to the graph coordinates
+        return fillGraph(function, makeDimensions(width));
+    }
+
+    @NonNull
+    private static Dimensions makeDimensions(float width) {
+        return Dimensions.empty().copy()
+                .updateScene(RectSize.create(1000, 500), new RectSizeF(width, width / 2), new PointF())
+                .updateGraph(new RectSizeF(width, width / 2), new PointF());
+    }
+
+    @NonNull
+    private static Graph fillGraph(@NonNull Function function, @NonNull Dimensions dimensions) {
+        final FunctionGraph2d curve = FunctionGraph2d.create(dimensions, function, MeshSpec.DEFAULT_POINTS_COUNT);
+        final Graph graph = Graph.create();
+        curve.fillGraph(graph, dimensions, MeshSpec.DEFAULT_POINTS_COUNT);
+        return graph;
+    }
+
+    /**
+     * Function which counts how many times it was evaluated and how many points were calculated
+     */
+    private static abstract class TestFunction extends Function1 {
+        int calls;
+        int points;
+
+        @Override
+        public abstract double evaluate(double x);
+
+        @Override
+        public float evaluate(float x) {
+            return (float) evaluate((double) x);
+        }
+
+        @Override
+        public void evaluate(@NonNull double[] xs, int offset, int length, @NonNull double[] out) {
+            calls++;
+            points += length;
+            super.evaluate(xs, offset, length, out);
+        }
+    }
+}
@@ -7,7 +7,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.solovyev.android.plotter.Dimensions;
+import org.solovyev.android.plotter.Function;
+import org.solovyev.android.plotter.Function2;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 @RunWith(RobolectricTestRunner.class)
@@ -15,7 +18,7 @@ public class BaseSurfaceTest {
 
     @Test
     public void testShouldMakeIndices2x2() throws Exception {
-        final short[] indices = fillIndices(2, 2);
+        final int[] indices = fillIndices(2, 2);
 
         assertEquals(0, indices[0]);
         assertEquals(3, indices[1]);
@@ -25,7 +28,7 @@ public class BaseSurfaceTest {
 
     @Test
     public void testShouldMakeIndices2x3() throws Exception {
-        final short[] indices = fillIndices(2, 3);
+        final int[] indices = fillIndices(2, 3);
 
         assertEquals(0, indices[0]);
         assertEquals(3, indices[1]);
@@ -37,7 +40,7 @@ public class BaseSurfaceTest {
 
     @Test
     public void testShouldMakeIndices3x2() throws Exception {
-        final short[] indices = fillIndices(3, 2);
+        final int[] indices = fillIndices(3, 2);
 
         assertEquals(0, indices[0]);
         assertEquals(5, indices[1]);
@@ -47,7 +50,7 @@ public class BaseSurfaceTest {
         assertEquals(3, indices[5]);
     }
 
-    private short[] fillIndices(final int w, final int h) {
+    private int[] fillIndices(final int w, final int h) {
         final SurfaceInitializer si = new SurfaceInitializer(new BaseSurface(Dimensions.empty()) {
             @NonNull
             @Override
@@ -73,7 +76,7 @@ public class BaseSurfaceTest {
 
     @Test
     public void testShouldMakeIndices6x5() throws Exception {
-        final short[] indices = fillIndices(6, 5);
+        final int[] indices = fillIndices(6, 5);
 
         assertEquals(0, indices[0]);
         assertEquals(11, indices[1]);
@@ -106,4 +109,53 @@ public class BaseSurfaceTest {
         assertEquals(6, indices[28]);
         assertEquals(5, indices[29]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParallelInitShouldBeSameAsSerial() throws Exception {
+        final Function2 function = new Function2() {
+            @Override
+            public float evaluate(float x, float y) {
+                return x * x - y / (x + 0.5f);
+            }
+
+            @NonNull
+            @Override
+            public Function newEvaluator() {
+                // stateless
+                return this;
+            }
+        };
+        final BaseSurface surface = new BaseSurface(Dimensions.empty()) {
+            @NonNull
+            @Override
+            protected SurfaceInitializer createInitializer() {
+                return null;
+            }
+
+            @Override
+            protected float z(float x, float y, int xi, int yi) {
+                return function.evaluate(x, y);
+            }
+
+            @NonNull
+            @Override
+            protected Function newEvaluator() {
+                return function.newEvaluator();
+            }
+
+            @NonNull
+            @Override
+            protected BaseMesh makeCopy() {
+                return null;
+            }
+        };
+        final SurfaceInitializer.Data data = SurfaceInitializer.Data.create(new RectF(-3, -2, 4, 5), 37, 23);
+        final Arrays serial = new Arrays(37 * 23 * 3, 37 * 23);
+        new SurfaceInitializer(surface, data).init(serial, false);
+        final Arrays parallel = new Arrays(37 * 23 * 3, 37 * 23);
+        new SurfaceInitializer(surface, data).init(parallel, true);
+
+        assertArrayEquals(serial.vertices, parallel.vertices, 0f);
+        assertArrayEquals(serial.indices, parallel.indices);
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import org.solovyev.android.plotter.arrays.IntArray;
 
 @RunWith(RobolectricTestRunner.class)
 public class GraphTest {
@@ -26,11 +27,66 @@ public class GraphTest {
     }
 
     @Test
-    public void testShouldMakeSpaceAtTheEnd() throws Exception {
-        graph.makeSpaceAtTheEnd();
+    public void testShouldWrapAround() throws Exception {
+        final int capacity = graph.capacity;
+        for (int i = 5; i < 100; i++) {
+            graph.moveStartTo(i - 3);
+            graph.append(i, i);
+            verify(graph, i - 3, i - 2, i - 1, i);
+        }
+        for (int i = 95; i > 0; i--) {
+            graph.moveEndTo(i + 3);
+            graph.prepend(i, i);
+            verify(graph, i, i + 1, i + 2, i + 3);
+        }
+        Assert.assertEquals(capacity, graph.capacity);
+    }
+
+    @Test
+    public void testShouldTrackDirtyRanges() throws Exception {
+        graph.markClean();
+        graph.moveStartTo(3);
+        graph.append(5, 5);
+        graph.append(6, 6);
+        verifyDirtyRanges(graph, 0, 6);
+
+        graph.markClean();
+        graph.moveEndTo(5);
+        graph.prepend(2, 2);
+        verify(graph, 2, 3, 4, 5);
+        verifyDirtyRanges(graph, 3, 6);
+    }
+
+    @Test
+    public void testShouldNotChangeVersionIfNothingIsMoved() throws Exception {
+        final int version = graph.version;
+        graph.moveStartTo(1);
+        graph.moveEndTo(4);
+        Assert.assertEquals(version, graph.version);
         verify(graph, 1, 2, 3, 4);
-        Assert.assertEquals(4, graph.start);
-        Assert.assertEquals(16, graph.end);
+    }
+
+    @Test
+    public void testShouldDecimateEnds() throws Exception {
+        graph.clear();
+        for (int i = 0; i < 100; i++) {
+            graph.append(i / 10f, i % 7);
+        }
+        final Path path = new Path();
+        graph.decimate(path, 1f);
+        graph.moveStartTo(2.55f);
+        for (int i = 100; i < 120; i++) {
+            graph.append(i / 10f, i % 7);
+        }
+        graph.decimateEnds(path, 1f, new Path());
+
+        final Path expected = new Path();
+        graph.decimate(expected, 1f);
+        Assert.assertEquals(expected.length(), path.length());
+        for (int i = 0; i < expected.length() / 3; i++) {
+            Assert.assertEquals(expected.vertices[expected.position(i)], path.vertices[path.position(i)], EPS);
+            Assert.assertEquals(expected.vertices[expected.position(i) + 1], path.vertices[path.position(i) + 1], EPS);
+        }
     }
 
     @Test
@@ -101,10 +157,61 @@ public class GraphTest {
         verify(graph, expected);
     }
 
+    @Test
+    public void testShouldDecimate() throws Exception {
+        graph.clear();
+        graph.append(0.1f, 5);
+        graph.append(0.2f, 1);
+        graph.append(0.3f, 9);
+        graph.append(0.4f, 3);
+        graph.append(0.5f, 4);
+        graph.append(1.5f, 2);
+        graph.append(1.6f, Float.NaN);
+        graph.append(1.7f, 3);
+        graph.append(1.8f, 3);
+
+        final Path path = new Path();
+        graph.decimate(path, 1f);
+
+        final float[] expected = {0.1f, 5, 0.2f, 1, 0.3f, 9, 0.5f, 4, 1.5f, 2, 1.6f, Float.NaN, 1.7f, 3, 1.8f, 3};
+        Assert.assertEquals(3 * expected.length / 2, path.length());
+        for (int i = 0; i < expected.length / 2; i++) {
+            final int v = path.position(i);
+            Assert.assertEquals(expected[2 * i], path.vertices[v], EPS);
+            Assert.assertEquals(expected[2 * i + 1], path.vertices[v + 1], EPS);
+        }
+    }
+
+    @Test
+    public void testShouldSplitIntoRuns() throws Exception {
+        graph.append(5, Float.NaN);
+        graph.append(6, 6);
+        graph.append(7, 7);
+        graph.append(8, Float.POSITIVE_INFINITY);
+        graph.append(9, 9);
+
+        final IntArray runs = new IntArray(4);
+        graph.getRuns(runs);
+        Assert.assertEquals(4, runs.size);
+        Assert.assertEquals(0, runs.array[0]);
+        Assert.assertEquals(4, runs.array[1]);
+        Assert.assertEquals(5, runs.array[2]);
+        Assert.assertEquals(2, runs.array[3]);
+    }
+
+    private void verifyDirtyRanges(@NonNull Path path, int... ranges) {
+        final IntArray actual = new IntArray(4);
+        path.getDirtyRanges(actual);
+        Assert.assertEquals(ranges.length, actual.size);
+        for (int i = 0; i < ranges.length; i++) {
+            Assert.assertEquals(ranges[i], actual.array[i]);
+        }
+    }
+
     private void verify(@NonNull Graph graph, float... values) {
         Assert.assertEquals(3 * values.length, graph.length());
         for (int i = 0; i < values.length; i++) {
-            final int v = graph.start + 3 * i;
+            final int v = graph.position(i);
             Assert.assertEquals(values[i], graph.vertices[v], EPS);
             Assert.assertEquals(values[i], graph.vertices[v + 1], EPS);
             Assert.assertEquals(0, graph.vertices[v + 2], EPS);
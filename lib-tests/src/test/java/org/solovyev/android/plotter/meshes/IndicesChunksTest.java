@@ -0,0 +1,68 @@
+package org.solovyev.android.plotter.meshes;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class IndicesChunksTest {
+
+    @Test
+    public void testShouldKeepSmallIndicesInOneChunk() throws Exception {
+        final IndicesChunks chunks = new IndicesChunks();
+        chunks.set(new int[]{0, 1, 65535, 2}, 4, IndicesOrder.LINE_STRIP);
+
+        Assert.assertArrayEquals(new int[]{0, 0, 4}, chunks.getChunks());
+        Assert.assertEquals(65535, chunks.indices[2] & 0xFFFF);
+    }
+
+    @Test
+    public void testShouldSplitLineStrip() throws Exception {
+        final int count = 200000;
+        final int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        final IndicesChunks chunks = new IndicesChunks();
+        chunks.set(indices, count, IndicesOrder.LINE_STRIP);
+
+        final int[] actual = chunks.getChunks();
+        Assert.assertTrue(actual.length > 3);
+        int expected = 0;
+        for (int i = 0; i < actual.length; i += 3) {
+            final int base = actual[i];
+            final int first = actual[i + 1];
+            final int size = actual[i + 2];
+            // each chunk starts from the last vertex of the previous chunk
+            expected = i == 0 ? 0 : expected - 1;
+            for (int j = first; j < first + size; j++) {
+                Assert.assertEquals(expected++, base + (chunks.indices[j] & 0xFFFF));
+            }
+        }
+        Assert.assertEquals(count, expected);
+    }
+
+    @Test
+    public void testShouldRestartLineStrip() throws Exception {
+        final int[] indices = {0, 1, 2, IndicesChunks.RESTART, 3, IndicesChunks.RESTART, 4, 5};
+        final IndicesChunks chunks = new IndicesChunks();
+        chunks.set(indices, indices.length, IndicesOrder.LINE_STRIP);
+
+        Assert.assertArrayEquals(new int[]{0, 0, 3, 0, 3, 2}, chunks.getChunks());
+        Assert.assertEquals(4, chunks.indices[3]);
+        Assert.assertEquals(5, chunks.indices[4]);
+    }
+
+    @Test
+    public void testShouldNotSplitLines() throws Exception {
+        final int[] indices = {0, 1, 70000, 70001, 2, 3};
+        final IndicesChunks chunks = new IndicesChunks();
+        chunks.set(indices, indices.length, IndicesOrder.LINES);
+
+        final int[] actual = chunks.getChunks();
+        for (int i = 0; i < actual.length; i += 3) {
+            Assert.assertEquals(0, actual[i + 2] % 2);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.solovyev.android.plotter;
 
-import android.graphics.PointF;
 import android.support.annotation.NonNull;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
@@ -10,19 +9,23 @@ public class CameraMan {
     @NonNull
     private final Interpolator interpolator = new DecelerateInterpolator();
 
-    @NonNull
-    private final PointF current = new PointF();
-    @NonNull
-    private final PointF from = new PointF();
-    @NonNull
-    private final PointF to = new PointF();
+    // positions are in double precision, see PlotRenderer#cameraX
+    private double x;
+    private double y;
+    private double fromX;
+    private double fromY;
+    private double toX;
+    private double toY;
     private long startTime;
 
-    void move(@NonNull PointF from, @NonNull PointF to) {
+    void move(double fromX, double fromY, double toX, double toY) {
         startTime = Plot.animationTime();
-        this.from.set(from);
-        this.to.set(to);
-        this.current.set(from);
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.toX = toX;
+        this.toY = toY;
+        this.x = fromX;
+        this.y = fromY;
     }
 
     private boolean isAnimating() {
@@ -36,18 +39,17 @@ public class CameraMan {
         final long elapsed = Math.min(Plot.animationTime() - startTime, duration);
         final float position = elapsed / (float) duration;
         final float interpolation = interpolator.getInterpolation(position);
-        current.x = from.x + interpolation * (to.x - from.x);
-        current.y = from.y + interpolation * (to.y - from.y);
+        x = fromX + interpolation * (toX - fromX);
+        y = fromY + interpolation * (toY - fromY);
 
         return isAnimating();
     }
 
-    @NonNull
-    public PointF getPosition() {
-        if (isAnimating()) {
-            return current;
-        } else {
-            return to;
-        }
+    public double getX() {
+        return isAnimating() ? x : toX;
+    }
+
+    public double getY() {
+        return isAnimating() ? y : toY;
     }
 }
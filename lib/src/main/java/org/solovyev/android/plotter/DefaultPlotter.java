@@ -23,6 +23,7 @@ import org.solovyev.android.plotter.meshes.ListGroup;
 import org.solovyev.android.plotter.meshes.ListPool;
 import org.solovyev.android.plotter.meshes.Mesh;
 import org.solovyev.android.plotter.meshes.MeshSpec;
+import org.solovyev.android.plotter.meshes.Parallel;
 import org.solovyev.android.plotter.meshes.Pool;
 import org.solovyev.android.plotter.text.FontAtlas;
 
@@ -30,10 +31,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.microedition.khronos.opengles.GL11;
 
@@ -43,6 +41,14 @@ final class DefaultPlotter implements Plotter {
 
     @NonNull
     private static final String TAG = Plot.getTag("Plotter");
+    // if true dirty meshes are initialized concurrently on the background threads
+    private static final boolean PARALLEL_INIT = true;
+    // if true function graphs are calculated ahead of the camera while the graph is panned
+    private static final boolean PREFETCH = true;
+    // how far ahead (in ms of the current camera movement) function graphs are calculated
+    private static final long PREFETCH_AHEAD_MS = 500;
+    // camera movements separated by a longer pause are considered to belong to different gestures
+    private static final long PREFETCH_MAX_PAUSE_MS = 100;
     @NonNull
     private final List<DoubleBufferMesh<AxisLabels>> labels = new CopyOnWriteArrayList<>();
     @NonNull
@@ -58,17 +64,6 @@ final class DefaultPlotter implements Plotter {
     @NonNull
     private final MeshConfig config = MeshConfig.create();
     @NonNull
-    private final ExecutorService background = Executors.newFixedThreadPool(Plot.getAvailableProcessors(), new ThreadFactory() {
-
-        @NonNull
-        private final AtomicInteger counter = new AtomicInteger(0);
-
-        @Override
-        public Thread newThread(@NonNull Runnable r) {
-            return new Thread(r, "PlotBackground #" + counter.getAndIncrement());
-        }
-    });
-    @NonNull
     private final Object lock = new Object();
     @GuardedBy("lock")
     @NonNull
@@ -111,6 +106,21 @@ final class DefaultPlotter implements Plotter {
     // main thread only
     @NonNull
     private final List<Listener> listeners = new ArrayList<>();
+    // main thread only: id of the function which was added or updated last, its graph is initialized before other
+    // meshes
+    private int editedFunctionId = Function.NO_ID;
+    // set on the main thread and accessed from the background thread
+    @Nullable
+    private volatile DoubleBufferMesh<FunctionGraph> editedFunctionMesh;
+    // main thread only: camera movement since the dimensions were changed last time and its velocity (in scene
+    // units per ms), see onCameraMoved
+    @NonNull
+    private final PointF cameraShift = new PointF();
+    @NonNull
+    private final PointF cameraVelocity = new PointF();
+    private long cameraMovedTime;
+    // true if some meshes are held until the prepared scene is set, see prepareScene
+    private volatile boolean preparedScene;
 
     DefaultPlotter(@NonNull Context context) {
         this.context = context;
@@ -145,6 +155,9 @@ final class DefaultPlotter implements Plotter {
             final int bg = plotData.axisStyle.backgroundColor;
             gl.glClearColor(Color.red(bg), Color.green(bg), Color.blue(bg), Color.alpha(bg));
         }
+        if (firstTime) {
+            releasePreparedMeshes();
+        }
         allMeshes.initGl(gl, config);
         if (existsNotInitializedMesh(allMeshes)) {
             Log.d(TAG, "Exist not initialized meshes after iniGl, invoking init again...");
@@ -173,10 +186,14 @@ final class DefaultPlotter implements Plotter {
     }
 
     @Override
-    public void draw(@NonNull GL11 gl, float labelsAlpha) {
+    public void draw(@NonNull GL11 gl, float labelsAlpha, double cameraX, double cameraY) {
         for (DoubleBufferMesh<AxisLabels> label : labels) {
             label.setAlpha(labelsAlpha);
         }
+        for (DoubleBufferMesh<FunctionGraph> dbm : functionMeshes) {
+            dbm.getFirst().setCamera(cameraX, cameraY);
+            dbm.getSecond().setCamera(cameraX, cameraY);
+        }
         allMeshes.draw(gl);
     }
 
@@ -189,6 +206,7 @@ final class DefaultPlotter implements Plotter {
         // if there are not enough meshes => create new
         // if there are too many meshes => release them
         int i = 0;
+        DoubleBufferMesh<FunctionGraph> editedMesh = null;
         for (PlotFunction function : plotData.functions) {
             if (!function.visible) {
                 continue;
@@ -199,7 +217,12 @@ final class DefaultPlotter implements Plotter {
                 final FunctionGraph current = dbm.getOther(next);
                 next.setFunction(function.function);
                 function.meshSpec.applyTo(next);
-                next.setDimensions(dimensions);
+                // there is no need to recalculate the graph if the current mesh can be drawn for new dimensions
+                // (e.g. if the graph was panned a bit). Note that the next mesh must have the latest dimensions if
+                // it is going to be calculated anyway
+                if (next.getState() != Mesh.State.INIT_GL || !current.canDraw(dimensions)) {
+                    next.setDimensions(dimensions);
+                }
                 function.meshSpec.applyTo(current);
             } else {
                 final FunctionGraph mesh = pool.obtain();
@@ -208,8 +231,12 @@ final class DefaultPlotter implements Plotter {
                 mesh.setDimensions(dimensions);
                 functionMeshes.add(DoubleBufferMesh.wrap(mesh, FunctionGraphSwapper.INSTANCE));
             }
+            if (function.function.getId() == editedFunctionId) {
+                editedMesh = functionMeshes.get(i);
+            }
             i++;
         }
+        editedFunctionMesh = editedMesh;
 
         for (int k = functionMeshes.size() - 1; k >= i; k--) {
             final DoubleBufferMesh<FunctionGraph> dbm = functionMeshes.remove(k);
@@ -218,7 +245,7 @@ final class DefaultPlotter implements Plotter {
     }
 
     private void setDirty() {
-        background.execute(initializer);
+        initializer.schedule();
     }
 
     @Override
@@ -241,6 +268,8 @@ final class DefaultPlotter implements Plotter {
         Check.isMainThread();
 
         final Dimensions dimensions = getDimensions();
+        // new dimensions already include all the camera movements
+        cameraShift.set(0f, 0f);
         updateDimensions(dimensions, otherMeshesAfter);
         updateDimensions(dimensions, otherMeshesBefore);
         updateFunctions();
@@ -267,6 +296,7 @@ final class DefaultPlotter implements Plotter {
     @Override
     public void add(@NonNull PlotFunction function) {
         plotData.add(function.copy());
+        editedFunctionId = function.function.getId();
         for (Listener listener : listeners) {
             listener.onFunctionAdded(function);
         }
@@ -297,6 +327,7 @@ final class DefaultPlotter implements Plotter {
     @Override
     public void update(int id, @NonNull PlotFunction function) {
         if (plotData.update(id, function.copy())) {
+            editedFunctionId = function.function.getId();
             for (Listener listener : listeners) {
                 listener.onFunctionUpdated(id, function);
             }
@@ -358,6 +389,11 @@ final class DefaultPlotter implements Plotter {
         synchronized (lock) {
             if (!dimensions.equals(newDimensions)) {
                 dimensions = newDimensions;
+                if (preparedScene) {
+                    // prepared meshes (if any) can be shown now
+                    releasePreparedMeshes();
+                    view.requestRender();
+                }
                 if (!Plot.isMainThread() || view == emptyView) {
                     dimensionsChangedRunnable.post(view, source);
                 } else {
@@ -368,15 +404,62 @@ final class DefaultPlotter implements Plotter {
     }
 
     @Override
-    public void updateScene(@Nullable Object source, @NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, @NonNull PointF sceneCenter) {
+    public void updateScene(@Nullable Object source, @NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double sceneCenterX, double sceneCenterY) {
         synchronized (lock) {
-            final Dimensions newDimensions = dimensions.updateScene(viewSize, sceneSize, sceneCenter);
+            final Dimensions newDimensions = dimensions.updateScene(viewSize, sceneSize, sceneCenterX, sceneCenterY);
             if (newDimensions != dimensions) {
                 updateDimensions(newDimensions, source);
             }
         }
     }
 
+    @Override
+    public void prepareScene(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double sceneCenterX, double sceneCenterY) {
+        Check.isMainThread();
+        final Dimensions dimensions = getDimensions().updateScene(viewSize, sceneSize, sceneCenterX, sceneCenterY);
+        if (dimensions.isZero()) {
+            return;
+        }
+        // the scene is expected to be set when the zoom animation finishes, prepared meshes must not be shown before
+        // that. Other meshes (e.g. a graph of a function which is being edited) are swapped in as usual
+        final long heldUntil = Plot.animationTime() + Zoomer.DURATION;
+        preparedScene = true;
+        // calculation starts in the next buffers, current meshes are still drawn
+        prepareDimensions(dimensions, otherMeshesAfter, heldUntil);
+        prepareDimensions(dimensions, otherMeshesBefore, heldUntil);
+        for (DoubleBufferMesh<FunctionGraph> dbm : functionMeshes) {
+            final FunctionGraph next = dbm.getNext();
+            next.setDimensions(dimensions);
+            // there is enough time to calculate the graph in the full resolution
+            next.setPreview(false);
+            dbm.hold(heldUntil);
+        }
+        setDirty();
+    }
+
+    private void prepareDimensions(@NonNull Dimensions dimensions, @NonNull DoubleBufferGroup<Mesh> meshes, long heldUntil) {
+        for (DoubleBufferMesh<Mesh> dbm : meshes) {
+            final Mesh mesh = dbm.getNext();
+            if (mesh instanceof DimensionsAware) {
+                ((DimensionsAware) mesh).setDimensions(dimensions);
+                dbm.hold(heldUntil);
+            }
+        }
+    }
+
+    private void releasePreparedMeshes() {
+        preparedScene = false;
+        release(otherMeshesAfter);
+        release(otherMeshesBefore);
+        release(functionMeshes);
+    }
+
+    private static void release(@NonNull DoubleBufferGroup<?> meshes) {
+        for (DoubleBufferMesh<?> dbm : meshes) {
+            dbm.release();
+        }
+    }
+
     @Override
     public void updateGraph(@Nullable Object source, @NonNull RectSizeF graphSize, @NonNull PointF graphCenter) {
         synchronized (lock) {
@@ -480,6 +563,63 @@ final class DefaultPlotter implements Plotter {
             final AxisLabels next = label.getNext();
             next.updateCamera(dx, dy);
         }
+        if (PREFETCH && !is3d()) {
+            prefetch(dx, dy);
+        }
+    }
+
+    /**
+     * Calculates function graphs for the dimensions where the camera is expected to be soon if it continues to move
+     * with the same velocity. Prefetched graphs are swapped in as soon as they are ready and, as the samples are kept
+     * in the graphs, only the remaining part of the new range is calculated when the camera stops.
+     */
+    private void prefetch(float dx, float dy) {
+        Check.isMainThread();
+        cameraShift.offset(dx, dy);
+
+        final long now = Plot.animationTime();
+        final long dt = now - cameraMovedTime;
+        cameraMovedTime = now;
+        if (dt <= 0 || dt > PREFETCH_MAX_PAUSE_MS) {
+            // a new gesture, velocity is unknown yet
+            cameraVelocity.set(0f, 0f);
+            return;
+        }
+        // smooth the velocity as touch events are not evenly distributed
+        cameraVelocity.set((cameraVelocity.x + dx / dt) / 2, (cameraVelocity.y + dy / dt) / 2);
+
+        // scene center is opposite to the camera position, see PlotRenderer#getSceneCenter
+        final Dimensions dimensions = getDimensions();
+        final RectSizeF size = dimensions.scene.size;
+        // graphs are calculated one size beyond the edges of the screen => the prefetched graphs still cover the
+        // current view if the look-ahead is not bigger than the size (otherwise the trailing side of a fast fling
+        // would be blank until the graphs are calculated again)
+        final float aheadX = clamp(cameraVelocity.x * PREFETCH_AHEAD_MS, size.width);
+        final float aheadY = clamp(cameraVelocity.y * PREFETCH_AHEAD_MS, size.height);
+        final double centerX = dimensions.scene.centerX() - cameraShift.x - aheadX;
+        final double centerY = dimensions.scene.centerY() - cameraShift.y - aheadY;
+        final Dimensions ahead = dimensions.updateScene(dimensions.scene.view, dimensions.scene.size, centerX, centerY);
+
+        boolean prefetch = false;
+        for (DoubleBufferMesh<FunctionGraph> dbm : functionMeshes) {
+            final FunctionGraph next = dbm.getNext();
+            final FunctionGraph current = dbm.getOther(next);
+            // don't interrupt a calculation which is in progress, the graph is prefetched again after it is swapped
+            if (next.getState() != Mesh.State.INIT_GL || current.canDraw(ahead)) {
+                continue;
+            }
+            next.setDimensions(ahead);
+            // prefetched graph replaces the graph on the screen and must not be coarser than it
+            next.setPreview(false);
+            prefetch = true;
+        }
+        if (prefetch) {
+            setDirty();
+        }
+    }
+
+    private static float clamp(float value, float max) {
+        return Math.max(-max, Math.min(max, value));
     }
 
     private void makeSetting(boolean d3) {
@@ -544,14 +684,100 @@ final class DefaultPlotter implements Plotter {
         }
     }
 
+    /**
+     * Initializes the meshes on the background thread. Requests are coalesced: at most one initialization pass is
+     * scheduled or running at any time and if meshes are changed during the pass another pass is done after it
+     */
     public final class Initializer implements Runnable {
 
+        // true if a pass is scheduled or running
+        @NonNull
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // true if meshes were changed after the current pass had started
+        @NonNull
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        // background thread only
+        @NonNull
+        private final List<Mesh> dirtyMeshes = new ArrayList<>();
+
+        void schedule() {
+            dirty.set(true);
+            if (scheduled.compareAndSet(false, true)) {
+                Parallel.execute(this);
+            }
+        }
+
         @Override
         public void run() {
-            allMeshes.init();
-            synchronized (lock) {
-                view.requestRender();
+            do {
+                dirty.set(false);
+                try {
+                    init();
+                    requestRender();
+                } finally {
+                    scheduled.set(false);
+                }
+                // if schedule() was called after the pass had started and didn't manage to schedule a new one we
+                // must do it ourselves
+            } while (dirty.get() && scheduled.compareAndSet(false, true));
+        }
+
+        private void init() {
+            // meshes are initialized in the order of their priority: the graph of the function which is being edited,
+            // other graphs, meshes drawn before the graphs (grid, axes) and meshes drawn after them (labels)
+            dirtyMeshes.clear();
+            final DoubleBufferMesh<FunctionGraph> editedMesh = editedFunctionMesh;
+            if (editedMesh != null && editedMesh.getNext().getState() == Mesh.State.DIRTY) {
+                dirtyMeshes.add(editedMesh);
+            }
+            collectDirtyMeshes(functionMeshes, dirtyMeshes, editedMesh);
+            collectDirtyMeshes(otherMeshesBefore, dirtyMeshes, null);
+            collectDirtyMeshes(otherMeshesAfter, dirtyMeshes, null);
+            final int count = dirtyMeshes.size();
+            if (!PARALLEL_INIT || count <= 1) {
+                for (int i = 0; i < count; i++) {
+                    if (dirtyMeshes.get(i).init()) {
+                        requestRender();
+                    }
+                }
+                return;
             }
+            // the current thread takes part in the initialization => no deadlock even if all other threads are busy.
+            // Meshes are rendered as soon as they are initialized
+            final List<Mesh> meshes = new ArrayList<>(dirtyMeshes);
+            Parallel.run(count, new Parallel.Task() {
+                @Override
+                public void run(@NonNull Parallel.Chunks chunks) {
+                    for (int i = chunks.next(); i >= 0; i = chunks.next()) {
+                        if (meshes.get(i).init()) {
+                            requestRender();
+                        }
+                    }
+                }
+            });
+        }
+
+        private void collectDirtyMeshes(@NonNull Iterable<? extends Mesh> meshes, @NonNull List<Mesh> out, @Nullable Mesh skip) {
+            for (Mesh mesh : meshes) {
+                if (mesh == skip) {
+                    continue;
+                }
+                if (mesh instanceof Group) {
+                    collectDirtyMeshes((Group<?>) mesh, out, skip);
+                } else if (mesh instanceof DoubleBufferMesh) {
+                    if (((DoubleBufferMesh) mesh).getNext().getState() == Mesh.State.DIRTY) {
+                        out.add(mesh);
+                    }
+                } else if (mesh.getState() == Mesh.State.DIRTY) {
+                    out.add(mesh);
+                }
+            }
+        }
+    }
+
+    private void requestRender() {
+        synchronized (lock) {
+            view.requestRender();
         }
     }
 
@@ -88,11 +88,16 @@ public final class Dimensions {
 
     @NonNull
     public Dimensions updateScene(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, @NonNull PointF sceneCenter) {
-        if (scene.same(viewSize, sceneSize, sceneCenter)) {
+        return updateScene(viewSize, sceneSize, sceneCenter.x, sceneCenter.y);
+    }
+
+    @NonNull
+    public Dimensions updateScene(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double sceneCenterX, double sceneCenterY) {
+        if (scene.same(viewSize, sceneSize, sceneCenterX, sceneCenterY)) {
             return this;
         }
         final Dimensions copy = copy();
-        copy.setScene(viewSize, sceneSize, sceneCenter);
+        copy.setScene(viewSize, sceneSize, sceneCenterX, sceneCenterY);
         return copy;
     }
 
@@ -110,9 +115,9 @@ public final class Dimensions {
         graph.set(graphSize, graphCenter, scene);
     }
 
-    private void setScene(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, @NonNull PointF sceneCenter) {
-        scene.set(viewSize, sceneSize, sceneCenter);
-        graph.update(sceneSize, sceneCenter);
+    private void setScene(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double sceneCenterX, double sceneCenterY) {
+        scene.set(viewSize, sceneSize, sceneCenterX, sceneCenterY);
+        graph.update(sceneSize, sceneCenterX, sceneCenterY);
     }
 
     public boolean isZero() {
@@ -129,12 +134,17 @@ public final class Dimensions {
 
     public static final class Scene {
 
+        // center rounded to floats, see centerX() and centerY()
         @NonNull
         public final PointF center = new PointF();
         @NonNull
         public final RectSizeF size = new RectSizeF();
         @NonNull
         public final RectSize view = RectSize.empty();
+        // the center in double precision: the camera of a deeply zoomed scene moves in steps smaller than float's
+        // precision
+        private double centerX;
+        private double centerY;
 
         @Override
         public boolean equals(Object o) {
@@ -143,7 +153,8 @@ public final class Dimensions {
 
             Scene scene = (Scene) o;
 
-            if (!center.equals(scene.center)) return false;
+            if (Double.compare(scene.centerX, centerX) != 0) return false;
+            if (Double.compare(scene.centerY, centerY) != 0) return false;
             if (!size.equals(scene.size)) return false;
             if (!view.equals(scene.view)) return false;
 
@@ -163,18 +174,36 @@ public final class Dimensions {
         }
 
         public boolean set(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, @NonNull PointF sceneCenter) {
-            if (same(viewSize, sceneSize, sceneCenter)) {
+            return set(viewSize, sceneSize, sceneCenter.x, sceneCenter.y);
+        }
+
+        public boolean set(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double centerX, double centerY) {
+            if (same(viewSize, sceneSize, centerX, centerY)) {
                 return false;
             }
             view.set(viewSize);
             size.set(sceneSize);
-            center.set(sceneCenter);
+            setCenter(centerX, centerY);
             return true;
 
         }
 
-        private boolean same(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, @NonNull PointF sceneCenter) {
-            return view.equals(viewSize) && size.equals(sceneSize) && center.equals(sceneCenter);
+        private boolean same(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double centerX, double centerY) {
+            return view.equals(viewSize) && size.equals(sceneSize) && this.centerX == centerX && this.centerY == centerY;
+        }
+
+        private void setCenter(double x, double y) {
+            centerX = x;
+            centerY = y;
+            center.set((float) x, (float) y);
+        }
+
+        public double centerX() {
+            return centerX;
+        }
+
+        public double centerY() {
+            return centerY;
         }
 
         public float toSceneX(float viewX) {
@@ -196,7 +225,7 @@ public final class Dimensions {
         @Override
         public String toString() {
             return "Scene{" +
-                    "center=" + center +
+                    "center=(x=" + centerX + ", y=" + centerY + ")" +
                     ", size=" + size.stringSize() +
                     ", view=" + view.stringSize() +
                     '}';
@@ -217,13 +246,13 @@ public final class Dimensions {
         }
 
         public void copy(@NonNull Scene that) {
-            center.set(that.center);
+            setCenter(that.centerX, that.centerY);
             size.set(that.size);
             view.set(that.view);
         }
 
         public void setEmpty() {
-            center.set(0f, 0f);
+            setCenter(0d, 0d);
             size.setEmpty();
             view.setEmpty();
         }
@@ -235,10 +264,14 @@ public final class Dimensions {
         public final RectSizeF size = new RectSizeF();
         @NonNull
         public final RectSizeF original = new RectSizeF();
+        // center rounded to floats, see centerX() and centerY()
         @NonNull
         public final PointF center = new PointF();
         @NonNull
         public final PointF scale = new PointF();
+        // the center in double precision: graph coordinates of deeply zoomed graphs can't be represented as floats
+        private double centerX;
+        private double centerY;
 
         public Graph() {
             setEmpty();
@@ -254,7 +287,8 @@ public final class Dimensions {
             if (!scale.equals(that.scale)) return false;
             if (!size.equals(that.size)) return false;
             if (!original.equals(that.original)) return false;
-            return center.equals(that.center);
+            if (Double.compare(that.centerX, centerX) != 0) return false;
+            return Double.compare(that.centerY, centerY) == 0;
         }
 
         @Override
@@ -270,21 +304,35 @@ public final class Dimensions {
             return size.isEmpty();
         }
 
-        public void update(@NonNull RectSizeF sceneSize, @NonNull PointF sceneCenter) {
+        public void update(@NonNull RectSizeF sceneSize, double sceneCenterX, double sceneCenterY) {
             final float zoomLevel = sceneSize.width / Frustum.SCENE_WIDTH;
             size.set(zoomLevel * original.width, zoomLevel * original.height);
             scale.set(size.width / sceneSize.width, size.height / sceneSize.height);
-            center.set(toGraphX(sceneCenter.x), toGraphY(sceneCenter.y));
+            setCenter(sceneCenterX * scale.x, sceneCenterY * scale.y);
+        }
+
+        private void setCenter(double x, double y) {
+            centerX = x;
+            centerY = y;
+            center.set((float) x, (float) y);
+        }
+
+        public double centerX() {
+            return centerX;
+        }
+
+        public double centerY() {
+            return centerY;
         }
 
         public void set(@NonNull RectSizeF graphSize, @NonNull PointF graphCenter, @NonNull Scene scene) {
             original.set(graphSize);
             scene.size.set(Frustum.SCENE_WIDTH, Frustum.SCENE_WIDTH / scene.size.aspectRatio());
-            scene.center.set(0f, 0f);
-            update(scene.size, scene.center);
+            scene.setCenter(0d, 0d);
+            update(scene.size, 0d, 0d);
 
-            center.set(graphCenter.x, graphCenter.y);
-            scene.center.set(toScreenX(graphCenter.x), toScreenY(graphCenter.y));
+            setCenter(graphCenter.x, graphCenter.y);
+            scene.setCenter(graphCenter.x / (double) scale.x, graphCenter.y / (double) scale.y);
         }
 
         public float toGraphX(float x) {
@@ -337,7 +385,7 @@ public final class Dimensions {
 
         @NonNull
         public RectF makeBounds() {
-            return new RectF(xMin(), yMin(), xMax(), yMax());
+            return new RectF((float) xMin(), (float) yMin(), (float) xMax(), (float) yMax());
         }
 
         @Override
@@ -345,31 +393,31 @@ public final class Dimensions {
             return "Graph{" +
                     "size=" + size.stringSize() +
                     ", original=" + original.stringSize() +
-                    ", center=" + center +
+                    ", center=(x=" + centerX + ", y=" + centerY + ")" +
                     ", scale=" + scale +
                     '}';
         }
 
-        public float xMin() {
-            return -size.width / 2 + center.x;
+        public double xMin() {
+            return -size.width / 2 + centerX;
         }
 
-        public float xMax() {
-            return size.width / 2 + center.x;
+        public double xMax() {
+            return size.width / 2 + centerX;
         }
 
-        public float yMin() {
-            return -size.height / 2 + center.y;
+        public double yMin() {
+            return -size.height / 2 + centerY;
         }
 
-        public float yMax() {
-            return size.height / 2 + center.y;
+        public double yMax() {
+            return size.height / 2 + centerY;
         }
 
         public void copy(@NonNull Graph that) {
             size.set(that.size);
             original.set(that.original);
-            center.set(that.center);
+            setCenter(that.centerX, that.centerY);
             scale.set(that.scale);
         }
 
@@ -380,7 +428,7 @@ public final class Dimensions {
         public void setEmpty() {
             original.set(SIZE, SIZE);
             size.set(original);
-            center.set(0f, 0f);
+            setCenter(0d, 0d);
             scale.set(1f, 1f);
         }
     }
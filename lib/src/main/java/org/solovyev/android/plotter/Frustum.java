@@ -52,6 +52,11 @@ public final class Frustum {
         return new Frustum(Zoom.one(), 1);
     }
 
+    @NonNull
+    static Frustum create(@NonNull Zoom zoom, float aspectRatio) {
+        return new Frustum(zoom, aspectRatio);
+    }
+
     boolean update(@NonNull Zoom zoom, float aspectRatio) {
         if (this.aspectRatio == aspectRatio && this.zoom.equals(zoom)) {
             return false;
@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class Function implements SuperFunction {
@@ -18,7 +19,7 @@ public abstract class Function implements SuperFunction {
     private final String name;
 
     protected Function() {
-        this(null);
+        this((String) null);
     }
 
     protected Function(@Nullable String name) {
@@ -26,6 +27,11 @@ public abstract class Function implements SuperFunction {
         this.id = counter.getAndIncrement();
     }
 
+    protected Function(@NonNull Function that) {
+        this.name = that.name;
+        this.id = that.id;
+    }
+
     @Nullable
     public String getName() {
         return name;
@@ -40,12 +46,78 @@ public abstract class Function implements SuperFunction {
         return name != null ? name : super.toString();
     }
 
+    @Override
+    public void evaluate(@NonNull float[] xs, int offset, int length, @NonNull float[] out) {
+        evaluate(xs, 0, offset, length, out);
+    }
+
+    @Override
+    public void evaluate(@NonNull float[] xs, float y, int offset, int length, @NonNull float[] out) {
+        final int end = offset + length;
+        switch (getArity()) {
+            case 0:
+                Arrays.fill(out, offset, end, evaluate());
+                break;
+            case 1:
+                for (int i = offset; i < end; i++) {
+                    out[i] = evaluate(xs[i]);
+                }
+                break;
+            case 2:
+                for (int i = offset; i < end; i++) {
+                    out[i] = evaluate(xs[i], y);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    public double evaluate(double x) {
+        switch (getArity()) {
+            case 0:
+                return evaluate();
+            case 1:
+                return evaluate((float) x);
+            case 2:
+                return evaluate((float) x, 0f);
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    public void evaluate(@NonNull double[] xs, int offset, int length, @NonNull double[] out) {
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            out[i] = evaluate(xs[i]);
+        }
+    }
+
+    @Override
+    public boolean evaluate(@NonNull double[] xs, int offset, int length, @NonNull double[] out, @NonNull double[] derivatives) {
+        return false;
+    }
+
+    @Override
+    public boolean evaluate(@NonNull Interval x, @NonNull Interval out) {
+        return false;
+    }
+
     @NonNull
     @Override
     public Function copy() {
         return this;
     }
 
+    @Nullable
+    @Override
+    public Function newEvaluator() {
+        // subclasses might have a state which can't be shared between threads, they should opt in explicitly
+        return null;
+    }
+
     @Override
     public int getId() {
         return id;
@@ -10,6 +10,13 @@ public abstract class Function0 extends Function {
         public float evaluate() {
             return 0;
         }
+
+        @NonNull
+        @Override
+        public Function newEvaluator() {
+            // stateless
+            return this;
+        }
     };
 
     protected Function0() {
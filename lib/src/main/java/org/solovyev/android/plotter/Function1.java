@@ -1,5 +1,6 @@
 package org.solovyev.android.plotter;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 public abstract class Function1 extends Function {
@@ -11,6 +12,10 @@ public abstract class Function1 extends Function {
         super(name);
     }
 
+    protected Function1(@NonNull Function1 that) {
+        super(that);
+    }
+
     @Override
     public final int getArity() {
         return 1;
@@ -0,0 +1,75 @@
+package org.solovyev.android.plotter;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Closed interval [min, max]. Bounds of an unbounded interval are infinite, bounds of an empty interval are
+ * {@link Double#NaN}.
+ */
+public final class Interval {
+    public double min;
+    public double max;
+
+    public Interval() {
+    }
+
+    public Interval(double min, double max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public void set(double min, double max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public void set(@NonNull Interval that) {
+        set(that.min, that.max);
+    }
+
+    public void setEmpty() {
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    public boolean isEmpty() {
+        return Double.isNaN(min) || Double.isNaN(max);
+    }
+
+    public boolean isBounded() {
+        return !isEmpty() && !Double.isInfinite(min) && !Double.isInfinite(max);
+    }
+
+    public double width() {
+        return max - min;
+    }
+
+    public boolean contains(double value) {
+        return min <= value && value <= max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final Interval that = (Interval) o;
+
+        if (Double.compare(that.min, min) != 0) return false;
+        return Double.compare(that.max, max) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(min);
+        int result = (int) (bits ^ (bits >>> 32));
+        bits = Double.doubleToLongBits(max);
+        result = 31 * result + (int) (bits ^ (bits >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + min + ", " + max + "]";
+    }
+}
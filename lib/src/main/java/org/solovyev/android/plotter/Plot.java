@@ -46,7 +46,7 @@ public final class Plot {
         return System.nanoTime() / (1000L * 1000L);
     }
 
-    static int getAvailableProcessors() {
+    public static int getAvailableProcessors() {
         return Math.max(1, Runtime.getRuntime().availableProcessors());
     }
 
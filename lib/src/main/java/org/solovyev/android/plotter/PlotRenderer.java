@@ -15,7 +15,6 @@
  */
 package org.solovyev.android.plotter;
 
-import android.graphics.PointF;
 import android.opengl.GLSurfaceView;
 import android.opengl.GLU;
 import android.os.Bundle;
@@ -36,9 +35,6 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
     @NonNull
     private static final Object SOURCE = new Object();
 
-    @NonNull
-    private static final PointF tmp = new PointF();
-
     @NonNull
     private final Spf spf = new Spf();
 
@@ -65,9 +61,15 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
     private Plotter plotter;
     @GuardedBy("lock")
     private boolean glInitialized;
+    // camera position in double precision: a camera of a deeply zoomed scene moves in steps smaller than float's
+    // precision
     @GuardedBy("lock")
-    @NonNull
-    private PointF camera = new PointF();
+    private double cameraX;
+    @GuardedBy("lock")
+    private double cameraY;
+    // GL thread only, camera position of the frame which is being drawn
+    private double frameCameraX;
+    private double frameCameraY;
     private volatile boolean rotating = rotation.shouldRotate();
 
     public PlotRenderer(@NonNull PlottingView view) {
@@ -93,7 +95,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             Check.isNull(this.plotter);
             this.plotter = plotter;
             if (!viewSize.isEmpty()) {
-                this.plotter.updateScene(SOURCE, viewSize, getSceneSize(), getSceneCenter());
+                updateScene(this.plotter);
             }
         }
     }
@@ -170,7 +172,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             gl.glMatrixMode(GL10.GL_MODELVIEW);
             gl.glLoadIdentity();
 
-            cameraMan.onFrame(tmp, plotter);
+            cameraMan.onFrame(plotter);
             //gl.glTranslatef(tmp.x, tmp.y, -frustum.distance());
 
             rotation.onFrame(gl10);
@@ -180,7 +182,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             gl.glEnable(GL10.GL_BLEND);
             gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
 
-            plotter.draw(gl, alpha);
+            plotter.draw(gl, alpha, frameCameraX, frameCameraY);
 
             gl.glDisable(GL10.GL_BLEND);
         }
@@ -217,7 +219,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             public void run() {
                 final Plotter plotter = getPlotter();
                 if (plotter != null) {
-                    plotter.updateScene(SOURCE, viewSize, getSceneSize(), getSceneCenter());
+                    updateScene(plotter);
                 }
                 view.onSizeChanged(viewSize);
             }
@@ -291,7 +293,8 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
     public void moveCamera(float dx, float dy) {
         Check.isMainThread();
         synchronized (lock) {
-            camera.offset(dx, -dy);
+            cameraX += dx;
+            cameraY -= dy;
             final Plotter plotter = getPlotter();
             if (plotter != null) {
                 plotter.onCameraMoved(dx, -dy);
@@ -306,22 +309,21 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
 
         final Plotter plotter = getPlotter();
         if (plotter != null) {
-            plotter.updateScene(SOURCE, viewSize, getSceneSize(), getSceneCenter());
+            updateScene(plotter);
         }
         fader.fadeIn();
         view.requestRender();
     }
 
-    @NonNull
-    private PointF getSceneCenter() {
+    private void updateScene(@NonNull Plotter plotter) {
+        final double sceneCenterX;
+        final double sceneCenterY;
         synchronized (lock) {
-            return getSceneCenter(camera);
+            // scene center is opposite to the camera position
+            sceneCenterX = -cameraX;
+            sceneCenterY = -cameraY;
         }
-    }
-
-    @NonNull
-    private PointF getSceneCenter(@NonNull PointF camera) {
-        return new PointF(-camera.x, -camera.y);
+        plotter.updateScene(SOURCE, viewSize, getSceneSize(), sceneCenterX, sceneCenterY);
     }
 
     @NonNull
@@ -341,7 +343,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
         if (SOURCE == source) {
             return;
         }
-        cameraMan.reset(-dimensions.scene.center.x, -dimensions.scene.center.y);
+        cameraMan.reset(-dimensions.scene.centerX(), -dimensions.scene.centerY());
         Check.isTrue(dimensions.scene.size.width == Frustum.SCENE_WIDTH);
         zoomer.reset();
     }
@@ -410,8 +412,8 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             synchronized (rotation) {
                 rotation.onFrame();
 
-                float x = -tmp.x;
-                float y = -tmp.y;
+                float x = (float) -frameCameraX;
+                float y = (float) -frameCameraY;
                 float z = 0f;
                 final float distance = frustum.distance();
 
@@ -467,13 +469,13 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
         private boolean moving;
 
         public void reset() {
-            reset(0f, 0f);
+            reset(0d, 0d);
         }
 
-        public void reset(float x, float y) {
+        public void reset(double x, double y) {
             synchronized (lock) {
-                if (camera.x != x || camera.y != y) {
-                    cameraMan.move(camera, new PointF(x, y));
+                if (cameraX != x || cameraY != y) {
+                    cameraMan.move(cameraX, cameraY, x, y);
                     fader.fadeOut();
                     moving = true;
                     view.requestRender();
@@ -481,37 +483,37 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             }
         }
 
-        public void onFrame(@NonNull PointF out, @NonNull Plotter plotter) {
+        public void onFrame(@NonNull Plotter plotter) {
             synchronized (lock) {
-                if (!moving) {
-                    out.set(camera);
-                    return;
-                }
-
-                if (cameraMan.onFrame()) {
-                    camera.set(cameraMan.getPosition());
-                    view.requestRender();
-                } else if (moving) {
-                    camera.set(cameraMan.getPosition());
-                    moving = false;
-                    plotter.updateScene(SOURCE, viewSize, getSceneSize(), getSceneCenter(camera));
-                    fader.fadeIn();
+                if (moving) {
+                    if (cameraMan.onFrame()) {
+                        cameraX = cameraMan.getX();
+                        cameraY = cameraMan.getY();
+                        view.requestRender();
+                    } else {
+                        cameraX = cameraMan.getX();
+                        cameraY = cameraMan.getY();
+                        moving = false;
+                        updateScene(plotter);
+                        fader.fadeIn();
+                    }
                 }
-                out.set(camera);
+                frameCameraX = cameraX;
+                frameCameraY = cameraY;
             }
         }
 
         public void saveState(@NonNull Bundle bundle) {
             synchronized (lock) {
-                bundle.putFloat("camera.x", camera.x);
-                bundle.putFloat("camera.y", camera.y);
+                bundle.putDouble("camera.x", cameraX);
+                bundle.putDouble("camera.y", cameraY);
             }
         }
 
         public void restoreState(@NonNull Bundle bundle) {
             synchronized (lock) {
-                camera.x = bundle.getFloat("camera.x", camera.x);
-                camera.y = bundle.getFloat("camera.y", camera.y);
+                cameraX = bundle.getDouble("camera.x", cameraX);
+                cameraY = bundle.getDouble("camera.y", cameraY);
             }
         }
     }
@@ -566,7 +568,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
                     // if we were running and now we are stopped it's time to update the dimensions
                     if (!zoomer.isZooming()) {
                         if (!pinchZoom) {
-                            plotter.updateScene(SOURCE, viewSize, getSceneSize(), getSceneCenter());
+                            updateScene(plotter);
                             fader.fadeIn();
                         }
                         startRotating();
@@ -579,6 +581,23 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             }
         }
 
+        // the scene is updated only after the animation is finished, meanwhile the meshes can be calculated for the
+        // target zoom level
+        private void prepareScene(@NonNull Plotter plotter) {
+            Check.isTrue(Thread.holdsLock(this));
+            if (pinchZoom || viewSize.isEmpty()) {
+                return;
+            }
+            final Frustum target = Frustum.create(zoomer.target(), viewSize.aspectRatio());
+            final double sceneCenterX;
+            final double sceneCenterY;
+            synchronized (lock) {
+                sceneCenterX = -cameraX;
+                sceneCenterY = -cameraY;
+            }
+            plotter.prepareScene(viewSize, target.getSceneSize(), sceneCenterX, sceneCenterY);
+        }
+
         void onSurfaceChanged(GL10 gl) {
             synchronized (this) {
                 initFrustum(gl, zoomer.current(), true);
@@ -601,7 +620,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
             if (!viewSize.isEmpty()) {
                 final Plotter plotter = getPlotter();
                 if (plotter != null) {
-                    plotter.updateScene(SOURCE, viewSize, getSceneSize(), getSceneCenter());
+                    updateScene(plotter);
                 }
             }
         }
@@ -614,6 +633,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
 
             synchronized (this) {
                 if (zoomer.zoom(in, plotter.getDimensions())) {
+                    prepareScene(plotter);
                     view.requestRender();
                     fader.fadeOut();
                 }
@@ -639,6 +659,10 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
         void reset() {
             synchronized (this) {
                 if (zoomer.reset()) {
+                    final Plotter plotter = getPlotter();
+                    if (plotter != null) {
+                        prepareScene(plotter);
+                    }
                     view.requestRender();
                 }
                 Log.d(TAG, "Resetting: " + zoomer);
@@ -680,7 +704,7 @@ final class PlotRenderer implements GLSurfaceView.Renderer {
                     } else {
                         fader.fadeIn();
                         if (plotter != null) {
-                            plotter.updateScene(SOURCE, viewSize, getSceneSize(), getSceneCenter());
+                            updateScene(plotter);
                         }
                         Log.d(TAG, "Ending pinch zoom");
                     }
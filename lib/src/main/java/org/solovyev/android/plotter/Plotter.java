@@ -30,7 +30,12 @@ public interface Plotter {
 
     void initGl(@NonNull GL11 gl, boolean firstTime);
 
-    void draw(@NonNull GL11 gl, float labelsAlpha);
+    /**
+     * @param cameraX x coordinate of the camera which the model-view matrix is translated to (in double precision as
+     *                the matrix can't represent the camera of a deeply zoomed scene precisely)
+     * @param cameraY y coordinate of the camera
+     */
+    void draw(@NonNull GL11 gl, float labelsAlpha, double cameraX, double cameraY);
 
     @NonNull
     PlotData getPlotData();
@@ -51,7 +56,13 @@ public interface Plotter {
     @NonNull
     Dimensions.Scene getSceneDimensions();
 
-    void updateScene(@Nullable Object source, @NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, @NonNull PointF sceneCenter);
+    void updateScene(@Nullable Object source, @NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double sceneCenterX, double sceneCenterY);
+
+    /**
+     * Starts calculating meshes for the scene which is going to be set soon via {@link #updateScene}, e.g. when a
+     * zoom animation is started. Calculated meshes are not shown until the scene is updated
+     */
+    void prepareScene(@NonNull RectSize viewSize, @NonNull RectSizeF sceneSize, double sceneCenterX, double sceneCenterY);
 
     void updateGraph(@Nullable Object source, @NonNull RectSizeF graphSize, @NonNull PointF graphCenter);
 
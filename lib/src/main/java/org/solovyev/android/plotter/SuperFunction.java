@@ -1,6 +1,7 @@
 package org.solovyev.android.plotter;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 interface SuperFunction {
 
@@ -12,8 +13,58 @@ interface SuperFunction {
 
     float evaluate(float x, float y);
 
+    /**
+     * Same as {@link #evaluate(float)} but in double precision. Functions which can't be evaluated in double precision
+     * might return the result of {@link #evaluate(float)}
+     */
+    double evaluate(double x);
+
+    /**
+     * Evaluates the function for each of <var>length</var> arguments stored in <var>xs</var> starting from
+     * <var>offset</var>. Results are written to the same positions of <var>out</var>.
+     */
+    void evaluate(@NonNull float[] xs, int offset, int length, @NonNull float[] out);
+
+    /**
+     * Same as {@link #evaluate(float[], int, int, float[])} but uses the same <var>y</var> for all the arguments
+     */
+    void evaluate(@NonNull float[] xs, float y, int offset, int length, @NonNull float[] out);
+
+    /**
+     * Same as {@link #evaluate(float[], int, int, float[])} but in double precision, see {@link #evaluate(double)}
+     */
+    void evaluate(@NonNull double[] xs, int offset, int length, @NonNull double[] out);
+
+    /**
+     * Same as {@link #evaluate(double[], int, int, double[])} but also calculates the derivatives of the function of
+     * one argument in the same points. Derivatives are written to the same positions of <var>derivatives</var>.
+     *
+     * @return false if the function can't calculate its derivatives, nothing is written then
+     */
+    boolean evaluate(@NonNull double[] xs, int offset, int length, @NonNull double[] out, @NonNull double[] derivatives);
+
+    /**
+     * Calculates an enclosure of the values of the function of one argument on <var>x</var>: any f(x') where x' is in
+     * <var>x</var> is in <var>out</var> (unless f(x') is NaN). If the function is not defined on the whole
+     * <var>x</var> <var>out</var> is empty, if it has a pole there <var>out</var> is unbounded.
+     *
+     * @return false if the function can't be evaluated on intervals, <var>out</var> is not changed then
+     */
+    boolean evaluate(@NonNull Interval x, @NonNull Interval out);
+
     @NonNull
     SuperFunction copy();
 
+    /**
+     * Evaluation methods of the function are not required to be thread-safe. To evaluate the same function from
+     * several threads each thread should use its own evaluator returned from this method. The evaluator computes
+     * the same values and has the same id as the function.
+     *
+     * @return new evaluator or null if the function can't be evaluated concurrently (it's evaluated on one thread
+     * then)
+     */
+    @Nullable
+    SuperFunction newEvaluator();
+
     int getId();
 }
@@ -5,7 +5,7 @@ import android.support.annotation.NonNull;
 
 public final class Zoom {
 
-    public static final float ZOOM_LEVEL_MIN = (float) Math.pow(0.1, 4);
+    public static final float ZOOM_LEVEL_MIN = (float) Math.pow(0.1, 8);
     public static final float ZOOM_LEVEL_MAX = (float) Float.MAX_VALUE;
     private static final float ZOOM_SPEED = 1f;
     private static final float ZOOM_IN = .625f / ZOOM_SPEED;
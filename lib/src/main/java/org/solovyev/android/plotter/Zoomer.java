@@ -35,6 +35,14 @@ final class Zoomer {
         return current;
     }
 
+    /**
+     * @return zoom level which will be reached when the current animation finishes
+     */
+    @NonNull
+    public Zoom target() {
+        return to;
+    }
+
     /**
      * @return true if current zoom level has changed
      */
@@ -0,0 +1,29 @@
+package org.solovyev.android.plotter.arrays;
+
+import android.support.annotation.NonNull;
+
+public final class IntArray extends BaseArray {
+    @NonNull
+    public int[] array;
+
+    public IntArray(int capacity) {
+        this.array = new int[capacity];
+    }
+
+    public final void add(int value) {
+        if (size == array.length) {
+            reallocate(2 * size + 1);
+        }
+        array[size++] = value;
+    }
+
+    protected int arrayLength() {
+        return this.array.length;
+    }
+
+    protected void reallocate(int capacity) {
+        final int[] newArray = new int[capacity];
+        System.arraycopy(array, 0, newArray, 0, this.size);
+        this.array = newArray;
+    }
+}
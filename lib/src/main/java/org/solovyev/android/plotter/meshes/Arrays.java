@@ -10,30 +10,33 @@ import java.nio.ShortBuffer;
 final class Arrays {
 
     float[] vertices;
-    short[] indices;
+    int[] indices;
     int vertex = 0;
     int index = 0;
     // create on the background thread and accessed from GL thread
     private volatile FloatBuffer verticesBuffer;
     private volatile ShortBuffer indicesBuffer;
+    private volatile int[] chunks;
+    @NonNull
+    private final IndicesChunks indicesChunks = new IndicesChunks();
 
     public Arrays() {
     }
 
     public Arrays(int verticesCount, int indicesCount) {
         this.vertices = new float[verticesCount];
-        this.indices = new short[indicesCount];
+        this.indices = new int[indicesCount];
     }
 
     public boolean isCreated() {
         return vertices != null && indices != null;
     }
 
-    public void add(int i, float x, float y, float z) {
-        add((short) i, x, y, z);
+    public void add(short i, float x, float y, float z) {
+        add((int) i, x, y, z);
     }
 
-    public void add(short i, float x, float y, float z) {
+    public void add(int i, float x, float y, float z) {
         Check.isTrue(vertex < vertices.length, "Vertices must be allocated properly");
         Check.isTrue(index < indices.length, "Indices must be allocated properly");
 
@@ -56,16 +59,18 @@ final class Arrays {
         }
 
         if (indices == null || indices.length != indicesCount) {
-            indices = new short[indicesCount];
+            indices = new int[indicesCount];
         }
 
         init();
     }
 
-    public void createBuffers() {
+    public void createBuffers(@NonNull IndicesOrder order) {
         Check.isTrue(isCreated(), "Arrays should be initialized");
         verticesBuffer = Meshes.allocateOrPutBuffer(vertices, verticesBuffer);
-        indicesBuffer = Meshes.allocateOrPutBuffer(indices, indicesBuffer);
+        indicesChunks.set(indices, indices.length, order);
+        chunks = indicesChunks.getChunks();
+        indicesBuffer = Meshes.allocateOrPutBuffer(indicesChunks.indices, 0, indicesChunks.indicesCount, indicesBuffer);
     }
 
     @NonNull
@@ -81,4 +86,11 @@ final class Arrays {
         Check.isNotNull(indicesBuffer);
         return indicesBuffer;
     }
+
+    @NonNull
+    public int[] getChunks() {
+        Check.isTrue(isCreated(), "Arrays should be initialized");
+        Check.isNotNull(chunks);
+        return chunks;
+    }
 }
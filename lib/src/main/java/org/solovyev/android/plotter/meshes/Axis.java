@@ -51,7 +51,7 @@ public class Axis extends BaseMesh implements DimensionsAware {
 
         if (!dimensions.scene.isEmpty()) {
             initializer.init();
-            arrays.createBuffers();
+            arrays.createBuffers(IndicesOrder.LINES);
         } else {
             setDirty();
         }
@@ -62,7 +62,7 @@ public class Axis extends BaseMesh implements DimensionsAware {
         super.onInitGl(gl, config);
 
         setVertices(arrays.getVerticesBuffer());
-        setIndices(arrays.getIndicesBuffer(), IndicesOrder.LINES);
+        setIndices(arrays.getIndicesBuffer(), IndicesOrder.LINES, arrays.getChunks());
     }
 
     @NonNull
@@ -114,13 +114,14 @@ public class Axis extends BaseMesh implements DimensionsAware {
         private void initTicks(@NonNull Dimensions dimensions) {
             final int[] dv = direction.vector;
             final int[] da = direction.arrow;
-            float x = -dv[0] * (ticks.axisLength / 2 + ticks.step + dimensions.scene.centerXForStep(ticks.step, d3)) + da[0] * ticks.width / 2 + (d3 ? dimensions.scene.center.x : 0);
-            float y = -dv[1] * (ticks.axisLength / 2 + ticks.step + dimensions.scene.centerYForStep(ticks.step, d3)) + da[1] * ticks.width / 2 + (d3 ? dimensions.scene.center.y : 0);
-            float z = -dv[2] * (ticks.axisLength / 2 + ticks.step) + da[2] * ticks.width / 2;
+            final float x0 = -dv[0] * (ticks.axisLength / 2 + ticks.step + dimensions.scene.centerXForStep(ticks.step, d3)) + da[0] * ticks.width / 2 + (d3 ? dimensions.scene.center.x : 0);
+            final float y0 = -dv[1] * (ticks.axisLength / 2 + ticks.step + dimensions.scene.centerYForStep(ticks.step, d3)) + da[1] * ticks.width / 2 + (d3 ? dimensions.scene.center.y : 0);
+            final float z0 = -dv[2] * (ticks.axisLength / 2 + ticks.step) + da[2] * ticks.width / 2;
             for (int i = 0; i < ticks.count; i++) {
-                x += dv[0] * ticks.step;
-                y += dv[1] * ticks.step;
-                z += dv[2] * ticks.step;
+                // position is calculated from the index to avoid accumulating an error
+                final float x = x0 + (i + 1) * dv[0] * ticks.step;
+                final float y = y0 + (i + 1) * dv[1] * ticks.step;
+                final float z = z0 + (i + 1) * dv[2] * ticks.step;
 
                 arrays.add(arrays.vertex / 3, x, y, z);
                 arrays.add(arrays.vertex / 3, x - da[0] * ticks.width, y - da[1] * ticks.width, z - da[2] * ticks.width);
@@ -138,14 +138,17 @@ public class AxisLabels extends BaseMesh implements DimensionsAware {
             meshes = new TextMesh(6 * ticks.count);
         }
         meshes.reset();
-        float z = -dv[2] * (ticks.axisLength / 2 + ticks.step) + da[2] * ticks.width / 2;
+        final float x0 = x;
+        final float y0 = y;
+        final float z0 = -dv[2] * (ticks.axisLength / 2 + ticks.step) + da[2] * ticks.width / 2;
         final DecimalFormat format = getFormatter(dimensions.graph.scaleToGraphX(ticks.step));
         TextMesh previous = null;
         boolean previousShifted = false;
         for (int tick = 0; tick < ticks.count; tick++) {
-            x += dv[0] * ticks.step;
-            y += dv[1] * ticks.step;
-            z += dv[2] * ticks.step;
+            // position is calculated from the index to avoid accumulating an error
+            x = x0 + (tick + 1) * dv[0] * ticks.step;
+            y = y0 + (tick + 1) * dv[1] * ticks.step;
+            final float z = z0 + (tick + 1) * dv[2] * ticks.step;
 
             final String label = getLabel(x, y, z, format, dimensions);
             final TextMesh mesh = fontAtlas.getMesh(label, x, y, z, fontScale, !isY, isY);
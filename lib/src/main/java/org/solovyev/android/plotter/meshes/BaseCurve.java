@@ -1,11 +1,16 @@
 package org.solovyev.android.plotter.meshes;
 
+import android.graphics.PointF;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import org.solovyev.android.plotter.Check;
 import org.solovyev.android.plotter.Dimensions;
+import org.solovyev.android.plotter.Function;
+import org.solovyev.android.plotter.Interval;
 import org.solovyev.android.plotter.MeshConfig;
+import org.solovyev.android.plotter.arrays.IntArray;
 
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
@@ -15,15 +20,62 @@ import javax.microedition.khronos.opengles.GL11;
 
 public abstract class BaseCurve extends BaseMesh implements DimensionsAware {
 
-    private static final boolean CUTOFF = true;
+    // how many times less points are calculated for a preview, see setPreview
+    private static final int PREVIEW_COARSENING = 8;
 
     @NonNull
     protected final MeshDimensions dimensions;
     @NonNull
     private final Graph graph = Graph.create();
+    // background thread only, decimated vertices of the graph which are sent to GL. Vertices are in graph coordinates
+    // relative to the origin (see CurveSampler#getOriginX), they are projected to the screen by GL (see onPreDraw). As
+    // long as neither the graph nor the width of a pixel changes the same vertices can be uploaded (e.g. when the graph
+    // is panned vertically)
+    @NonNull
+    private final Path samples = new Path();
+    private int samplesVersion = -1;
+    private int samplesGeneration = -1;
+    private float samplesColumnWidth;
+    // background thread only, see Path#decimateEnds
+    @NonNull
+    private final Path decimated = new Path();
+    // set on the background thread and accessed from GL and main threads: dimensions for which the vertices were
+    // calculated, the range of x (in graph coordinates relative to the origin) which can be drawn from them and the
+    // origin. Vertices are not clipped vertically => any y can be drawn
+    @Nullable
+    private volatile Dimensions drawnDimensions;
+    @Nullable
+    private volatile Interval drawnBounds;
+    @Nullable
+    private volatile PointF drawnOrigin;
+    // GL thread only, the camera of the frame which is being drawn, see onPreDraw
+    private double cameraX;
+    private double cameraY;
+    // true if the vertices were calculated for a preview
+    private volatile boolean drawnPreview;
+    private volatile boolean progressive;
+    // true if the curve should be calculated for a preview the next time it is initialized
+    private volatile boolean preview = true;
     // create on the background thread and accessed from GL thread
     private volatile FloatBuffer verticesBuffer;
     private volatile ShortBuffer indicesBuffer;
+    private volatile int[] chunks;
+    // background thread only
+    @NonNull
+    private final IndicesChunks indicesChunks = new IndicesChunks();
+    // pairs of the first vertex and the number of vertices of each line strip if the curve is drawn without indices
+    // (null otherwise)
+    @Nullable
+    private volatile int[] ranges;
+    // background thread only, see Path#getRuns
+    @NonNull
+    private final IntArray runs = new IntArray(8);
+    // ranges of verticesBuffer which were changed since the last upload. Updated on the background thread and
+    // cleared on GL thread (they are never accessed at the same time, see Mesh.State)
+    @NonNull
+    private final IntArray dirtyVertices = new IntArray(8);
+    @NonNull
+    private final CurveSampler sampler = new CurveSampler(this);
 
     protected BaseCurve(@NonNull Dimensions dimensions) {
         this.dimensions = new MeshDimensions(dimensions);
@@ -50,19 +102,57 @@ public abstract class BaseCurve extends BaseMesh implements DimensionsAware {
         final Dimensions dimensions = this.dimensions.get();
         if (!dimensions.isZero()) {
             final long start = System.nanoTime();
-            fillGraph(graph, dimensions, getPointsCount());
+            final boolean preview = progressive && this.preview;
+            fillGraph(graph, dimensions, getPointsCount(), preview ? PREVIEW_COARSENING : 1);
             final long end = System.nanoTime();
+            if (isCancelled()) {
+                // dimensions have changed, the graph will be filled again
+                Log.d(TAG, this + ": cancelled after " + TimeUnit.NANOSECONDS.toMillis(end - start) + "ms");
+                return;
+            }
             Log.d(TAG, this + ": calculation time=" + TimeUnit.NANOSECONDS.toMillis(end - start));
 
-            verticesBuffer = Meshes.allocateOrPutBuffer(graph.vertices, graph.start, graph.length(), verticesBuffer);
-            final short[] indices;
-            if (CUTOFF) {
-                final Scene.AxisGrid grid = Scene.AxisGrid.create(dimensions, AxisGrid.Axes.XY, false);
-                indices = graph.getIndices(grid.rect.top, grid.rect.bottom);
+            // graph is stored in graph coordinates => columns should be measured in them too
+            final float columnWidth = dimensions.graph.scaleToGraphX(dimensions.scene.size.width / dimensions.scene.view.width);
+            if (samplesVersion != graph.version || samplesColumnWidth != columnWidth) {
+                if (samplesGeneration == graph.generation && samplesColumnWidth == columnWidth) {
+                    // the graph was panned: only the columns at the ends need to be decimated
+                    graph.decimateEnds(samples, columnWidth, decimated);
+                } else {
+                    graph.decimate(samples, columnWidth);
+                }
+                samplesVersion = graph.version;
+                samplesGeneration = graph.generation;
+                samplesColumnWidth = columnWidth;
+            }
+            final Path path = samples;
+            if (path.capacity / 3 > IndicesChunks.MAX_VERTICES) {
+                // a segment between the last and the first vertices of the array can't be put into a chunk
+                path.makeContiguous();
+            }
+            updateVerticesBuffer(path);
+            // the curve is drawn as line strips which are interrupted where the curve is not defined or not
+            // continuous (see CurveSampler#refine)
+            if (path.getFirstPartLength() == path.length()) {
+                // vertices are stored in one piece => strips can be drawn without indices
+                runs.truncate(0);
+                path.getRuns(runs);
+                final int[] ranges = new int[runs.size];
+                for (int i = 0; i < runs.size; i += 2) {
+                    ranges[i] = path.position(runs.array[i]) / 3;
+                    ranges[i + 1] = runs.array[i + 1];
+                }
+                this.ranges = ranges;
             } else {
-                indices = graph.getIndices();
+                ranges = null;
+                indicesChunks.set(path.getIndices(), path.getIndicesCount(), IndicesOrder.LINE_STRIP);
+                chunks = indicesChunks.getChunks();
+                indicesBuffer = Meshes.allocateOrPutBuffer(indicesChunks.indices, 0, indicesChunks.indicesCount, indicesBuffer);
             }
-            indicesBuffer = Meshes.allocateOrPutBuffer(indices, 0, graph.getIndicesCount(), indicesBuffer);
+            drawnBounds = graph.isEmpty() ? new Interval(0, 0) : new Interval(graph.xMin(), graph.xMax());
+            drawnOrigin = new PointF(sampler.getOriginX(), sampler.getOriginY());
+            drawnDimensions = dimensions;
+            drawnPreview = preview;
         } else {
             setDirty();
         }
@@ -70,104 +160,158 @@ public abstract class BaseCurve extends BaseMesh implements DimensionsAware {
 
     protected abstract int getPointsCount();
 
+    private void updateVerticesBuffer(@NonNull Path path) {
+        int dirtyStart = dirtyVertices.size;
+        path.getDirtyRanges(dirtyVertices);
+        path.markClean();
+        if (dirtyVertices.size > 64) {
+            // vertices were not uploaded for a while, let's upload everything next time
+            dirtyStart = 0;
+            dirtyVertices.truncate(0);
+            dirtyVertices.add(0);
+            dirtyVertices.add(path.capacity);
+        }
+        if (verticesBuffer == null || verticesBuffer.capacity() != path.capacity) {
+            verticesBuffer = Meshes.allocateBuffer(path.vertices, 0, path.capacity);
+            return;
+        }
+        final FloatBuffer buffer = verticesBuffer;
+        for (int i = dirtyStart; i < dirtyVertices.size; i += 2) {
+            final int start = dirtyVertices.array[i];
+            final int end = dirtyVertices.array[i + 1];
+            buffer.position(start);
+            buffer.put(path.vertices, start, end - start);
+        }
+        buffer.position(0);
+    }
+
+    /**
+     * @return true if the curve can be drawn for <var>dimensions</var> using already calculated vertices, i.e. if
+     * the visible range of x is covered by them and the zoom level is the same (vertices are not clipped vertically)
+     */
+    public boolean canDraw(@NonNull Dimensions dimensions) {
+        final Dimensions drawn = drawnDimensions;
+        final Interval bounds = drawnBounds;
+        final PointF origin = drawnOrigin;
+        if (drawn == null || bounds == null || origin == null) {
+            return false;
+        }
+        final Dimensions.Graph g = dimensions.graph;
+        if (!drawn.graph.scale.equals(g.scale) || !drawn.graph.size.equals(g.size) || !drawn.scene.view.equals(dimensions.scene.view)) {
+            return false;
+        }
+        return bounds.contains(g.xMin() - origin.x) && bounds.contains(g.xMax() - origin.x);
+    }
+
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    public boolean isPreview() {
+        return drawnPreview;
+    }
+
+    public void setPreview(boolean preview) {
+        this.preview = preview;
+        if (!preview && drawnPreview) {
+            setDirty();
+        } else if (!preview) {
+            // the vertices might be up to date, they should be shown again (see DoubleBufferMesh#initGl)
+            setDirtyGl();
+        }
+    }
+
+    @Override
+    protected void onPreDraw(@NonNull GL11 gl) {
+        super.onPreDraw(gl);
+        final Dimensions drawn = drawnDimensions;
+        final PointF origin = drawnOrigin;
+        Check.isNotNull(drawn);
+        Check.isNotNull(origin);
+        // vertices are in graph coordinates relative to the origin. The model-view matrix is already translated by the
+        // camera rounded to floats which can't be combined with the translation of the origin without losing the
+        // precision of a deeply zoomed scene => the camera is taken out and the origin is translated relative to the
+        // camera in double precision
+        gl.glPushMatrix();
+        gl.glTranslatef(-(float) cameraX, -(float) cameraY, 0f);
+        gl.glTranslatef((float) (origin.x / (double) drawn.graph.scale.x + cameraX), (float) (origin.y / (double) drawn.graph.scale.y + cameraY), 0f);
+        gl.glScalef(drawn.graph.scaleToScreenX(1f), drawn.graph.scaleToScreenY(1f), 1f);
+    }
+
+    public void setCamera(double x, double y) {
+        Check.isGlThread();
+        cameraX = x;
+        cameraY = y;
+    }
+
+    @Override
+    protected void onPostDraw(@NonNull GL11 gl) {
+        gl.glPopMatrix();
+        super.onPostDraw(gl);
+    }
+
     @Override
     public void onInitGl(@NonNull GL11 gl, @NonNull MeshConfig config) {
         super.onInitGl(gl, config);
 
         Check.isNotNull(verticesBuffer);
 
-        setVertices(verticesBuffer);
-        setIndices(indicesBuffer, CUTOFF ? IndicesOrder.LINES : IndicesOrder.LINE_STRIP);
+        setDynamicVertices(verticesBuffer, dirtyVertices);
+        final int[] ranges = this.ranges;
+        if (ranges != null) {
+            setContiguousIndices(ranges, IndicesOrder.LINE_STRIP);
+        } else {
+            setDynamicIndices(indicesBuffer, IndicesOrder.LINE_STRIP, chunks);
+        }
+        dirtyVertices.truncate(0);
     }
 
     void fillGraph(@NonNull Graph graph, @NonNull Dimensions dimensions, int pointsCount) {
-        final float add = dimensions.graph.size.width;
-        final float newXMin = dimensions.graph.xMin() - add;
-        final float newXMax = dimensions.graph.xMax() + add;
-        final int maxPoints;
-        if (pointsCount == MeshSpec.DEFAULT_POINTS_COUNT) {
-            maxPoints = 4 * dimensions.scene.view.width;
-        } else {
-            final int multiplier = Scene.getMultiplier(false);
-            maxPoints = pointsCount * multiplier;
-        }
-        final int points = maxPoints / 2;
-        final float step = Math.abs(newXMax - newXMin) / points;
+        fillGraph(graph, dimensions, pointsCount, 1);
+    }
 
-        if (graph.step < 0 || graph.step > step || graph.center.x != dimensions.graph.center.x || graph.center.y != dimensions.graph.center.y) {
-            graph.clear();
-        }
-        graph.step = step;
-        graph.center.x = dimensions.graph.center.x;
-        graph.center.y = dimensions.graph.center.y;
-
-        if (!graph.isEmpty()) {
-            final float screenXMin = dimensions.graph.toScreenX(newXMin);
-            final float screenXMax = dimensions.graph.toScreenX(newXMax);
-            if (screenXMin >= graph.xMin()) {
-                // |------[---erased---|------data----|---erased--]------ old data
-                // |-------------------[------data----]------------------ new data
-                //                    xMin           xMax
-                //
-                // OR
-                //
-                // |------[---erased---|------data----]----------- old data
-                // |-------------------[------data----<---->]----- new data
-                //                    xMin                 xMax
-                graph.moveStartTo(screenXMin);
-                if (screenXMax <= graph.xMax()) {
-                    graph.moveEndTo(screenXMax);
-                } else {
-                    if (fillGraphIfCantGrow(graph, newXMin, newXMax, step, maxPoints, dimensions))
-                        return;
-                    calculate(dimensions.graph.toGraphX(graph.xMax()) + step, newXMax, step, graph, dimensions.graph);
-                }
-            } else {
-                // |--------------------[-----data----|---erased----]-- old data
-                // |------[<------------>-----data----]---------------- new data
-                //       xMin                        xMax
-                //
-                // OR
-                //
-                // |--------------------[------data--]----|----------- old data
-                // |-------[<----------->------data--<--->]-----------new data
-                //        xMin                           xMax
-                if (fillGraphIfCantGrow(graph, newXMin, newXMax, step, maxPoints, dimensions))
-                    return;
-                calculate(dimensions.graph.toGraphX(graph.xMin()) - step, newXMin, -step, graph, dimensions.graph);
-                if (screenXMax <= graph.xMax()) {
-                    graph.moveEndTo(screenXMax);
-                } else {
-                    calculate(dimensions.graph.toGraphX(graph.xMax()) + step, newXMax, step, graph, dimensions.graph);
-                }
-            }
-        } else {
-            calculate(newXMin, newXMax, step, graph, dimensions.graph);
-        }
+    /**
+     * Samples the curve, see {@link CurveSampler#fill(Graph, Dimensions, int, int)}
+     */
+    void fillGraph(@NonNull Graph graph, @NonNull Dimensions dimensions, int pointsCount, int coarsening) {
+        sampler.fill(graph, dimensions, pointsCount, coarsening);
     }
 
-    private boolean fillGraphIfCantGrow(Graph graph, float newXMin, float newXMax, float step, int maxPoints, @NonNull Dimensions dimensions) {
-        if (!graph.canGrow(maxPoints)) {
-            // if we can't grow anymore we must clear the graph and recalculate all values
-            graph.clear();
-            calculate(newXMin, newXMax, step, graph, dimensions.graph);
-            return true;
-        }
+    /**
+     * Calculates the curve in double precision, see {@link Function#evaluate(double[], int, int, double[])}
+     */
+    protected abstract void y(@NonNull double[] xs, int offset, int length, @NonNull double[] ys);
+
+    /**
+     * Same as {@link #y(double[], int, int, double[])} but also calculates the derivatives, see
+     * {@link Function#evaluate(double[], int, int, double[], double[])}
+     *
+     * @return false if the curve can't calculate its derivatives
+     */
+    protected boolean y(@NonNull double[] xs, int offset, int length, @NonNull double[] ys, @NonNull double[] ds) {
         return false;
     }
 
-    protected abstract float y(float x);
+    /**
+     * Calculates an enclosure of the curve on <var>x</var>, see {@link Function#evaluate(Interval, Interval)}
+     *
+     * @return false if the curve can't be evaluated on intervals
+     */
+    protected boolean y(@NonNull Interval x, @NonNull Interval y) {
+        return false;
+    }
 
-    private void calculate(float from, float to, float step, @NonNull Graph graph, @NonNull Dimensions.Graph g) {
-        float x = from;
-        while (x < to) {
-            float y = y(x);
-            if (step > 0) {
-                graph.append(g.toScreenX(x), g.toScreenY(y));
-            } else {
-                graph.prepend(g.toScreenX(x), g.toScreenY(y));
-            }
-            x += step;
-        }
+    /**
+     * @return function which computes the same values as {@link #y(double[], int, int, double[])} and can be used
+     * concurrently with it and with other evaluators (see {@link Function#newEvaluator()}), null if the curve can't be
+     * calculated in parallel
+     */
+    @Nullable
+    protected Function newEvaluator() {
+        return null;
     }
 }
@@ -10,6 +10,7 @@ import org.solovyev.android.plotter.Check;
 import org.solovyev.android.plotter.Color;
 import org.solovyev.android.plotter.MeshConfig;
 import org.solovyev.android.plotter.arrays.FloatArray;
+import org.solovyev.android.plotter.arrays.IntArray;
 import org.solovyev.android.plotter.arrays.ShortArray;
 
 import java.nio.Buffer;
@@ -33,6 +34,10 @@ public abstract class BaseMesh implements Mesh {
     // can be accessed/changed from any thread
     @NonNull
     private final StateHolder state = new StateHolder();
+    // background threads only: generation of the state when onInit was started and whether onInit noticed that it
+    // became stale, see isCancelled
+    private volatile int initGeneration;
+    private volatile boolean cancelled;
     /**
      * OpenGL instance associated with this mesh. This must be a instance which is used for drawing.
      */
@@ -46,6 +51,13 @@ public abstract class BaseMesh implements Mesh {
     private int verticesCount = -1;
     private ShortBuffer indices;
     private int indicesCount = -1;
+    // pairs of first vertex and number of vertices if the vertices are drawn without indices (null otherwise), see
+    // setContiguousIndices
+    @Nullable
+    private int[] ranges;
+    // triples of base vertex, first index and number of indices, see IndicesChunks
+    @NonNull
+    private int[] chunks = new int[3];
     @NonNull
     private IndicesOrder indicesOrder = IndicesOrder.TRIANGLES;
     private FloatBuffer colors;
@@ -56,6 +68,9 @@ public abstract class BaseMesh implements Mesh {
     private int indicesVbo = NULL;
     private int colorsVbo = NULL;
     private int textureCoordinatesVbo = NULL;
+    // sizes (in bytes) of the dynamic buffer objects, 0 if the buffer objects are not dynamic, see setDynamicVertices
+    private int verticesVboSize;
+    private int indicesVboSize;
     // can be set from any thread
     @NonNull
     private volatile Color color = MeshSpec.COLOR_NO;
@@ -89,8 +104,33 @@ public abstract class BaseMesh implements Mesh {
         if (!state.setIf(State.INITIALIZING, State.DIRTY)) {
             return false;
         }
-        onInit();
-        return state.set(State.INIT);
+        while (true) {
+            initGeneration = state.generation;
+            cancelled = false;
+            onInit();
+            if (state.set(State.INIT)) {
+                return true;
+            }
+            // the mesh was made dirty during the initialization. If onInit was cancelled the mesh is initialized
+            // again right away: initialization requested together with the change might have skipped this mesh as it
+            // was busy
+            if (!cancelled || !state.setIf(State.INITIALIZING, State.DIRTY)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return true if the mesh was made dirty after {@link #onInit()} had started, i.e. the result of the current
+     * initialization is stale. Long running initialization should check this from time to time and stop early, the
+     * mesh will be initialized again. Can be called from any background thread
+     */
+    protected final boolean isCancelled() {
+        if (state.generation == initGeneration) {
+            return false;
+        }
+        cancelled = true;
+        return true;
     }
 
     /**
@@ -103,7 +143,8 @@ public abstract class BaseMesh implements Mesh {
     public final boolean initGl(@NonNull GL11 gl, @NonNull MeshConfig config) {
         Check.isGlThread();
 
-        if (this.gl == null || !this.gl.equals(gl)) {
+        final boolean glChanged = this.gl == null || !this.gl.equals(gl);
+        if (glChanged) {
             state.setIf(State.INIT, State.INIT_GL);
         }
         if (!state.setIf(State.INITIALIZING_GL, State.INIT)) {
@@ -115,7 +156,9 @@ public abstract class BaseMesh implements Mesh {
 
         final boolean usedVbo = useVbo;
         useVbo = this.config.useVbo && supportsVbo(gl);
-        if (usedVbo) {
+        // buffer objects stay valid for the same GL instance and can be updated in place (see setDynamicVertices)
+        final boolean keepVbo = usedVbo && useVbo && !glChanged;
+        if (usedVbo && !keepVbo) {
             final int[] buffers;
             if (colorsVbo != NULL) {
                 buffers = new int[]{verticesVbo, indicesVbo, textureCoordinatesVbo, colorsVbo};
@@ -125,18 +168,28 @@ public abstract class BaseMesh implements Mesh {
             gl.glDeleteBuffers(buffers.length, buffers, 0);
         }
 
-        if (useVbo) {
+        if (keepVbo) {
+            if (colorsVbo == NULL) {
+                final int[] out = new int[1];
+                gl.glGenBuffers(out.length, out, 0);
+                colorsVbo = out[0];
+            }
+        } else if (useVbo) {
             final int[] out = new int[4];
             gl.glGenBuffers(out.length, out, 0);
             verticesVbo = out[0];
             colorsVbo = out[1];
             indicesVbo = out[2];
             textureCoordinatesVbo = out[3];
+            verticesVboSize = 0;
+            indicesVboSize = 0;
         } else {
             verticesVbo = NULL;
             colorsVbo = NULL;
             indicesVbo = NULL;
             textureCoordinatesVbo = NULL;
+            verticesVboSize = 0;
+            indicesVboSize = 0;
         }
         onInitGl(gl, config);
         return state.set(State.INIT_GL);
@@ -188,33 +241,41 @@ public abstract class BaseMesh implements Mesh {
         }
 
         onPreDraw(gl);
-        if (useVbo) {
-            gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, verticesVbo);
-            gl.glVertexPointer(3, GL10.GL_FLOAT, 0, 0);
-
-            if (hasColors) {
-                gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, colorsVbo);
-                gl.glColorPointer(Color.COMPONENTS, GL10.GL_FLOAT, 0, 0);
-            }
-            if (hasTexture) {
-                gl.glBindTexture(GL10.GL_TEXTURE_2D, textureId);
-                gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, textureCoordinatesVbo);
-                gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, 0);
+        if (hasTexture) {
+            gl.glBindTexture(GL10.GL_TEXTURE_2D, textureId);
+        }
+        setPointers(gl, 0, hasColors, hasTexture);
+        if (ranges != null) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                gl.glDrawArrays(indicesOrder.glMode, ranges[i], ranges[i + 1]);
             }
-            gl.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, indicesVbo);
-            gl.glDrawElements(indicesOrder.glMode, indicesCount, GL10.GL_UNSIGNED_SHORT, 0);
-            gl.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, 0);
         } else {
-            gl.glVertexPointer(3, GL10.GL_FLOAT, 0, vertices);
-
-            if (hasColors) {
-                gl.glColorPointer(Color.COMPONENTS, GL10.GL_FLOAT, 0, colors);
+            if (useVbo) {
+                gl.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, indicesVbo);
             }
-            if (hasTexture) {
-                gl.glBindTexture(GL10.GL_TEXTURE_2D, textureId);
-                gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, textureCoordinates);
+            for (int i = 0; i < chunks.length; i += 3) {
+                final int base = chunks[i];
+                final int first = chunks[i + 1];
+                final int count = chunks[i + 2];
+                if (base != 0) {
+                    setPointers(gl, base, hasColors, hasTexture);
+                }
+                if (useVbo) {
+                    gl.glDrawElements(indicesOrder.glMode, count, GL10.GL_UNSIGNED_SHORT, first * Meshes.BYTES_IN_SHORT);
+                } else {
+                    indices.position(first);
+                    gl.glDrawElements(indicesOrder.glMode, count, GL10.GL_UNSIGNED_SHORT, indices);
+                }
+            }
+            if (useVbo) {
+                gl.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, 0);
+            } else {
+                indices.position(0);
+            }
+            if (chunks.length > 3) {
+                // onPostDraw might use the pointers
+                setPointers(gl, 0, hasColors, hasTexture);
             }
-            gl.glDrawElements(indicesOrder.glMode, indicesCount, GL10.GL_UNSIGNED_SHORT, indices);
         }
         onPostDraw(gl);
 
@@ -239,6 +300,40 @@ public abstract class BaseMesh implements Mesh {
         }
     }
 
+    /**
+     * Points GL to the arrays of the mesh starting from <var>vertex</var>
+     */
+    private void setPointers(@NonNull GL11 gl, int vertex, boolean hasColors, boolean hasTexture) {
+        if (useVbo) {
+            gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, verticesVbo);
+            gl.glVertexPointer(3, GL10.GL_FLOAT, 0, 3 * vertex * Meshes.BYTES_IN_FLOAT);
+
+            if (hasColors) {
+                gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, colorsVbo);
+                gl.glColorPointer(Color.COMPONENTS, GL10.GL_FLOAT, 0, Color.COMPONENTS * vertex * Meshes.BYTES_IN_FLOAT);
+            }
+            if (hasTexture) {
+                gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, textureCoordinatesVbo);
+                gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, 2 * vertex * Meshes.BYTES_IN_FLOAT);
+            }
+        } else {
+            vertices.position(3 * vertex);
+            gl.glVertexPointer(3, GL10.GL_FLOAT, 0, vertices);
+            vertices.position(0);
+
+            if (hasColors) {
+                colors.position(Color.COMPONENTS * vertex);
+                gl.glColorPointer(Color.COMPONENTS, GL10.GL_FLOAT, 0, colors);
+                colors.position(0);
+            }
+            if (hasTexture) {
+                textureCoordinates.position(2 * vertex);
+                gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, textureCoordinates);
+                textureCoordinates.position(0);
+            }
+        }
+    }
+
     private boolean hasTexture() {
         return textureId != -1;
     }
@@ -275,6 +370,23 @@ public abstract class BaseMesh implements Mesh {
 
         if (useVbo) {
             bindVboBuffer(this.vertices, verticesVbo, GL11.GL_ARRAY_BUFFER);
+            verticesVboSize = 0;
+            this.vertices = null;
+        }
+    }
+
+    /**
+     * Same as {@link #setVertices(FloatBuffer)} but the vertex buffer object is allocated with some headroom and is
+     * updated in place: only <var>dirty</var> ranges of <var>vertices</var> (pairs of start and end positions) are
+     * uploaded. Everything is uploaded if the buffer object is too small or was recreated.
+     */
+    protected final void setDynamicVertices(@NonNull FloatBuffer vertices, @NonNull IntArray dirty) {
+        Check.isGlThread();
+        this.vertices = vertices;
+        this.verticesCount = vertices.capacity() / 3;
+
+        if (useVbo) {
+            verticesVboSize = updateVboBuffer(this.vertices, Meshes.BYTES_IN_FLOAT, dirty, verticesVbo, verticesVboSize, GL11.GL_ARRAY_BUFFER);
             this.vertices = null;
         }
     }
@@ -287,6 +399,33 @@ public abstract class BaseMesh implements Mesh {
         bindVboBuffer(source, source.capacity() * Meshes.BYTES_IN_SHORT, destination, type);
     }
 
+    /**
+     * @return new size of the buffer object
+     */
+    private int updateVboBuffer(@NonNull Buffer source, int bytesPerElement, @Nullable IntArray dirty, int destination, int destinationBytes, int type) {
+        final int sourceBytes = source.capacity() * bytesPerElement;
+        gl.glBindBuffer(type, destination);
+        if (destinationBytes < sourceBytes) {
+            destinationBytes = sourceBytes + sourceBytes / 4;
+            gl.glBufferData(type, destinationBytes, null, GL11.GL_DYNAMIC_DRAW);
+            dirty = null;
+        }
+        if (dirty == null) {
+            source.position(0);
+            gl.glBufferSubData(type, 0, sourceBytes, source);
+        } else {
+            for (int i = 0; i < dirty.size; i += 2) {
+                final int start = dirty.array[i];
+                final int end = dirty.array[i + 1];
+                source.position(start);
+                gl.glBufferSubData(type, start * bytesPerElement, (end - start) * bytesPerElement, source);
+            }
+            source.position(0);
+        }
+        gl.glBindBuffer(type, 0);
+        return destinationBytes;
+    }
+
     private void bindVboBuffer(@NonNull Buffer source, int sourceBytes, int destination, int type) {
         if (destination != NULL) {
             final int[] buffers = {destination};
@@ -306,17 +445,72 @@ public abstract class BaseMesh implements Mesh {
     }
 
     protected final void setIndices(@NonNull ShortBuffer indices, @NonNull IndicesOrder order) {
+        setIndices(indices, order, null);
+    }
+
+    /**
+     * @param chunks chunks of the indices (see {@link IndicesChunks}), null if all the indices form one chunk
+     */
+    protected final void setIndices(@NonNull ShortBuffer indices, @NonNull IndicesOrder order, @Nullable int[] chunks) {
         Check.isGlThread();
         this.indices = indices;
         this.indicesCount = indices.capacity();
         this.indicesOrder = order;
+        this.ranges = null;
+        this.chunks = chunks != null ? chunks : new int[]{0, 0, indicesCount};
 
         if (useVbo) {
             bindVboBuffer(this.indices, indicesVbo, GL11.GL_ELEMENT_ARRAY_BUFFER);
+            indicesVboSize = 0;
+            this.indices = null;
+        }
+    }
+
+    /**
+     * Same as {@link #setIndices(ShortBuffer, IndicesOrder, int[])} but the index buffer object is allocated with some
+     * headroom and is reused while the indices fit into it
+     */
+    protected final void setDynamicIndices(@NonNull ShortBuffer indices, @NonNull IndicesOrder order, @Nullable int[] chunks) {
+        Check.isGlThread();
+        this.indices = indices;
+        this.indicesCount = indices.capacity();
+        this.indicesOrder = order;
+        this.ranges = null;
+        this.chunks = chunks != null ? chunks : new int[]{0, 0, indicesCount};
+
+        if (useVbo) {
+            indicesVboSize = updateVboBuffer(this.indices, Meshes.BYTES_IN_SHORT, null, indicesVbo, indicesVboSize, GL11.GL_ELEMENT_ARRAY_BUFFER);
             this.indices = null;
         }
     }
 
+    /**
+     * Sets indices to <var>first</var>, <var>first</var> + 1, ..., <var>first</var> + <var>count</var> - 1. Such
+     * indices are not stored: vertices are drawn with glDrawArrays
+     */
+    protected final void setContiguousIndices(int first, int count, @NonNull IndicesOrder order) {
+        setContiguousIndices(new int[]{first, count}, order);
+    }
+
+    /**
+     * Same as {@link #setContiguousIndices(int, int, IndicesOrder)} but several ranges of vertices are drawn, each
+     * range is drawn separately (e.g. a line strip is interrupted between the ranges)
+     *
+     * @param ranges pairs of the first vertex and the number of vertices
+     */
+    protected final void setContiguousIndices(@NonNull int[] ranges, @NonNull IndicesOrder order) {
+        Check.isGlThread();
+        int count = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            Check.isTrue(ranges[i] >= 0, "First index must not be negative");
+            count += ranges[i + 1];
+        }
+        this.indices = null;
+        this.indicesCount = count;
+        this.indicesOrder = order;
+        this.ranges = ranges;
+    }
+
     private void setTextureCoordinates(float[] textureCoordinates, int start, int length) {
         Check.isGlThread();
         this.textureCoordinates = Meshes.allocateOrPutBuffer(textureCoordinates, start, length, this.textureCoordinates);
@@ -435,6 +629,9 @@ public abstract class BaseMesh implements Mesh {
         @Nullable
         private State delayedState;
 
+        // incremented every time the state is set to DIRTY
+        private volatile int generation;
+
         @NonNull
         public State get() {
             synchronized (this) {
@@ -473,6 +670,7 @@ public abstract class BaseMesh implements Mesh {
 
         public void setDirty() {
             synchronized (this) {
+                generation++;
                 if (state == State.INITIALIZING || state == State.INITIALIZING_GL) {
                     // if we are in the middle of initialization process we should postpone setting dirty state until
                     // the process is done
@@ -1,9 +1,11 @@
 package org.solovyev.android.plotter.meshes;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import org.solovyev.android.plotter.Dimensions;
+import org.solovyev.android.plotter.Function;
 import org.solovyev.android.plotter.MeshConfig;
 import org.solovyev.android.plotter.Plot;
 
@@ -61,7 +63,10 @@ public abstract class BaseSurface extends BaseMesh implements DimensionsAware {
         if (!dimensions.isZero()) {
             Log.d(Plot.getTag("Dimensions"), String.valueOf(dimensions));
             createInitializer().init(arrays);
-            arrays.createBuffers();
+            if (isCancelled()) {
+                return;
+            }
+            arrays.createBuffers(IndicesOrder.LINE_STRIP);
         } else {
             setDirty();
         }
@@ -75,7 +80,7 @@ public abstract class BaseSurface extends BaseMesh implements DimensionsAware {
         super.onInitGl(gl, config);
 
         setVertices(arrays.getVerticesBuffer());
-        setIndices(arrays.getIndicesBuffer(), IndicesOrder.LINE_STRIP);
+        setIndices(arrays.getIndicesBuffer(), IndicesOrder.LINE_STRIP, arrays.getChunks());
     }
 
     @Override
@@ -85,4 +90,24 @@ public abstract class BaseSurface extends BaseMesh implements DimensionsAware {
     }
 
     protected abstract float z(float x, float y, int xi, int yi);
+
+    /**
+     * Calculates z coordinates of the whole row of vertices. <var>xs</var> contain x coordinates in the order of
+     * vertex indices in the row (xi)
+     */
+    protected void z(@NonNull float[] xs, float y, int yi, int length, @NonNull float[] zs) {
+        for (int xi = 0; xi < length; xi++) {
+            zs[xi] = z(xs[xi], y, xi, yi);
+        }
+    }
+
+    /**
+     * @return function which computes the same values as {@link #z(float[], float, int, int, float[])} and can be
+     * used concurrently with it and with other evaluators (see {@link Function#newEvaluator()}), null if the surface
+     * can't be calculated in parallel
+     */
+    @Nullable
+    protected Function newEvaluator() {
+        return null;
+    }
 }
@@ -0,0 +1,707 @@
+package org.solovyev.android.plotter.meshes;
+
+import android.support.annotation.NonNull;
+
+import org.solovyev.android.plotter.Check;
+import org.solovyev.android.plotter.Dimensions;
+import org.solovyev.android.plotter.Function;
+import org.solovyev.android.plotter.Interval;
+import org.solovyev.android.plotter.arrays.IntArray;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fills the {@link Graph} of a curve: the curve is sampled with a coarse step which is refined where the curve is not
+ * flat. Points are calculated in double precision and stored as floats relative to the origin (see
+ * {@link #getOriginX()}). Note that the sampling stops early if the curve is cancelled (see
+ * {@link BaseMesh#isCancelled()})
+ */
+class CurveSampler {
+
+    // number of points evaluated at once, see Function#evaluate(double[], int, int, double[])
+    private static final int CHUNK_SIZE = 256;
+    // there is no point to split the calculation between threads if only a few chunks are calculated (e.g. when the
+    // graph is panned)
+    private static final int PARALLEL_MIN_POINTS = 4 * CHUNK_SIZE;
+    // how many times the initial step is bigger than the step of the graph
+    private static final int COARSENING = 4;
+    // each interval can be divided in halves at most MAX_DEPTH times
+    private static final int MAX_DEPTH = 6;
+    // max average number of points added to one interval
+    static final int MAX_POINTS_PER_STEP = 2 * COARSENING;
+    // max distance (in pixels) between the curve and its polyline
+    private static final float MAX_DEVIATION = 0.5f;
+    // max angle between consecutive segments
+    private static final float MAX_ANGLE_COS = (float) Math.cos(Math.toRadians(5));
+    // results of enclose: nothing is known about the curve. Enclosures (see BaseCurve#y(Interval, Interval)) tell
+    // that flat intervals don't need to be refined, that intervals where the curve might jump out of its polyline
+    // should be refined even if their middle points lie on the polyline and where the poles are
+    private static final int ENCLOSURE_UNKNOWN = 0;
+    // the curve is within the tolerance from its polyline
+    private static final int ENCLOSURE_FLAT = 1;
+    // the curve is bounded but might go beyond the end points by more than the tolerance (e.g. it has a spike)
+    private static final int ENCLOSURE_SPIKE = 2;
+    // the curve might have a pole
+    private static final int ENCLOSURE_UNBOUNDED = 3;
+    // spike is not refined anymore if the overshoot of its enclosure shrinks by this factor after the interval is
+    // divided in halves
+    private static final float ENCLOSURE_MAX_SHRINK = 0.75f;
+    // results of divide: the interval is not divided. If the derivatives of the curve are known (see
+    // BaseCurve#y(double[], int, int, double[], double[])) the curve is approximated with the cubic which has the same
+    // values and derivatives at the ends of the interval, the middle point is evaluated only if the cubic is not flat
+    private static final int DIVISION_NONE = 0;
+    // the interval is divided in halves
+    private static final int DIVISION_HALVES = 1;
+    // the interval is divided in halves if its middle point doesn't lie on the segment between its ends, see
+    // shouldRefine
+    private static final int DIVISION_CHECKED = 2;
+    // the curve is interrupted in the middle of the interval
+    private static final int DIVISION_GAP = 3;
+    // vertices are stored relative to the origin as floats can't represent graph coordinates of a deeply zoomed graph
+    // (e.g. x = 100 and the width of the graph = 1e-4). The origin is moved to the center of the graph (and the
+    // vertices are calculated again) if the graph is panned by more than ORIGIN_MAX_DISTANCE of its sizes from it
+    private static final int ORIGIN_MAX_DISTANCE = 64;
+
+    @NonNull
+    private final BaseCurve curve;
+    // graph coordinates of the origin of the vertices, see ORIGIN_MAX_DISTANCE
+    private float originX;
+    private float originY;
+    // points are calculated in double precision and converted to floats relative to the origin when they are added
+    // to the graph. The arrays hold either the points of the fixed step or the middle points of the intervals which
+    // are being refined
+    @NonNull
+    private double[] xs = new double[CHUNK_SIZE];
+    @NonNull
+    private double[] ys = new double[CHUNK_SIZE];
+    // derivatives in xs
+    @NonNull
+    private double[] ds = new double[CHUNK_SIZE];
+    // true if derivatives are calculated together with the values
+    private boolean derivatives;
+    // points which are being refined, see refine
+    @NonNull
+    private Points points = new Points(CHUNK_SIZE);
+    @NonNull
+    private Points refined = new Points(CHUNK_SIZE);
+    // indices of the points which are added by resample
+    @NonNull
+    private final IntArray filled = new IntArray(CHUNK_SIZE);
+    // see resample
+    @NonNull
+    private final Path resampled = new Path();
+    @NonNull
+    private final Interval xInterval = new Interval();
+    @NonNull
+    private final Interval yInterval = new Interval();
+    // distance (in scene coordinates) by which the last enclosure goes beyond its end points, see enclose
+    private float overshoot;
+    // max deviation in scene coordinates
+    private float tolerance;
+    // number of points which can still be added by the refinement
+    private int budget;
+
+    CurveSampler(@NonNull BaseCurve curve) {
+        this.curve = curve;
+    }
+
+    /**
+     * @return graph coordinate of the origin of the vertices, i.e. vertex (0, 0) is (originX, originY) of the graph
+     */
+    float getOriginX() {
+        return originX;
+    }
+
+    float getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Samples the function in [xMin - width, xMax + width] of the graph. Samples are stored in graph coordinates
+     * (relative to the origin) and thus stay valid when the graph is panned or zoomed: only the missing parts are
+     * calculated.
+     *
+     * @param coarsening how many times less points should be calculated
+     */
+    void fill(@NonNull Graph graph, @NonNull Dimensions dimensions, int pointsCount, int coarsening) {
+        final Dimensions.Graph g = dimensions.graph;
+        final float add = g.size.width;
+        final double newXMin = g.xMin() - add;
+        final double newXMax = g.xMax() + add;
+        final int maxPoints;
+        if (pointsCount == MeshSpec.DEFAULT_POINTS_COUNT) {
+            maxPoints = 4 * dimensions.scene.view.width / coarsening;
+        } else {
+            final int multiplier = Scene.getMultiplier(false);
+            maxPoints = pointsCount * multiplier / coarsening;
+        }
+        final int points = Math.max(1, maxPoints / COARSENING / 2);
+        final float step = (float) (Math.abs(newXMax - newXMin) / points);
+        tolerance = coarsening * MAX_DEVIATION * dimensions.scene.size.width / dimensions.scene.view.width;
+
+        if (graph.step < 0 || !isNearOrigin(g)) {
+            graph.clear();
+        }
+        if (graph.isEmpty()) {
+            // the origin can be moved only if there are no vertices relative to it. The origin is rounded to floats
+            // so that GL translates the vertices by exactly the same value (see BaseCurve#onPreDraw)
+            originX = (float) g.centerX();
+            originY = (float) g.centerY();
+        }
+        if (!graph.isEmpty()) {
+            // |------[---erased---|------data----|---erased--]------ old data
+            // |-------------------[------data----]------------------ new data
+            //                    xMin           xMax
+            if (newXMin > xMin(graph)) {
+                graph.moveStartTo((float) (newXMin - originX));
+            }
+            if (!graph.isEmpty() && newXMax < xMax(graph)) {
+                graph.moveEndTo((float) (newXMax - originX));
+            }
+        }
+        if (!graph.isEmpty() && graph.step != step) {
+            resample(graph, step, g);
+            if (curve.isCancelled()) {
+                // the graph is not resampled => its step must stay the same
+                return;
+            }
+        }
+        graph.step = step;
+
+        if (graph.isEmpty()) {
+            calculate(newXMin, newXMax, step, graph, g);
+            return;
+        }
+        // |--------------------[------data--]----|----------- old data
+        // |-------[<----------->------data--<--->]-----------new data
+        //        xMin                           xMax
+        // calculate doesn't include the end of the range => it is covered if the distance to its ends is not bigger
+        // than the step (with a small margin for rounding errors)
+        final boolean prepend = xMin(graph) - newXMin > 1.01f * step;
+        final boolean append = newXMax - xMax(graph) > 1.01f * step;
+        if (prepend || append) {
+            if (fillIfCantGrow(graph, newXMin, newXMax, step, maxPoints, g)) {
+                return;
+            }
+            if (prepend) {
+                calculate(xMin(graph) - step, newXMin, -step, graph, g);
+            }
+            if (append) {
+                calculate(xMax(graph) + step, newXMax, step, graph, g);
+            }
+        }
+    }
+
+    private boolean isNearOrigin(@NonNull Dimensions.Graph g) {
+        return Math.abs(g.centerX() - originX) <= ORIGIN_MAX_DISTANCE * g.size.width && Math.abs(g.centerY() - originY) <= ORIGIN_MAX_DISTANCE * g.size.height;
+    }
+
+    private double xMin(@NonNull Graph graph) {
+        return originX + (double) graph.xMin();
+    }
+
+    private double xMax(@NonNull Graph graph) {
+        return originX + (double) graph.xMax();
+    }
+
+    private boolean fillIfCantGrow(Graph graph, double newXMin, double newXMax, float step, int maxPoints, @NonNull Dimensions.Graph g) {
+        // 3 floats per vertex, adaptive sampling adds at most as many points as the fixed step would
+        if (!graph.canGrow(3 * 2 * maxPoints)) {
+            // if we can't grow anymore we must clear the graph and recalculate all values
+            graph.clear();
+            calculate(newXMin, newXMax, step, graph, g);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adapts existing samples to a new step (i.e. to a new zoom level). If the graph was zoomed out points which
+     * can be removed without changing the look of the curve are removed. If the graph was zoomed in new points are
+     * calculated only where the distance between the existing points is bigger than the step (e.g. in the middle
+     * of each interval if the graph was zoomed in 2 times).
+     */
+    private void resample(@NonNull Graph graph, float step, @NonNull Dimensions.Graph g) {
+        final Points points = this.points;
+        points.clear();
+        filled.truncate(0);
+        budget = graph.length() / 3 * MAX_POINTS_PER_STEP;
+        // derivatives of the existing points are not known
+        derivatives = false;
+        // graph is not modified until the end => positions of its vertices can be used
+        final float[] vertices = graph.vertices;
+        final int vertexCount = graph.length() / 3;
+        int a = graph.start;
+        points.add(originX + (double) vertices[a], originY + (double) vertices[a + 1], Double.NaN);
+        int p = graph.next(a);
+        for (int i = 1; i < vertexCount; i++, p = graph.next(p)) {
+            if (i % CHUNK_SIZE == 0 && curve.isCancelled()) {
+                return;
+            }
+            final int q = graph.next(p);
+            if (i + 1 < vertexCount && vertices[q] - vertices[a] <= step && canSkip(vertices, a, p, q, g)) {
+                continue;
+            }
+            if (!fillInterval(points, originX + (double) vertices[a], originX + (double) vertices[p], step)) {
+                // existing points were refined when they were calculated
+                points.open[points.size - 1] = false;
+            }
+            points.add(originX + (double) vertices[p], originY + (double) vertices[p + 1], Double.NaN);
+            a = p;
+        }
+
+        final int count = filled.size;
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            xs[i] = points.xs[filled.array[i]];
+        }
+        evaluate(count);
+        if (curve.isCancelled()) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            points.ys[filled.array[i]] = ys[i];
+        }
+        final Path path = resampled;
+        path.clear();
+        if (refine(path, true, g)) {
+            graph.swap(path);
+        }
+    }
+
+    private boolean canSkip(@NonNull float[] vertices, int a, int p, int q, @NonNull Dimensions.Graph g) {
+        final float ya = g.toScreenY(vertices[a + 1]);
+        final float yp = g.toScreenY(vertices[p + 1]);
+        final float yq = g.toScreenY(vertices[q + 1]);
+        if (!Meshes.isFinite(ya) || !Meshes.isFinite(yp) || !Meshes.isFinite(yq)) {
+            return false;
+        }
+        return distance(g.toScreenX(vertices[a]), ya, g.toScreenX(vertices[p]), yp, g.toScreenX(vertices[q]), yq) <= tolerance;
+    }
+
+    /**
+     * Adds points between x0 and x1 (both are not added) so that the distance between them is not bigger than
+     * <var>step</var>. Indices of the added points are stored in {@link #filled}, their y's are to be calculated
+     *
+     * @return true if any point was added
+     */
+    private boolean fillInterval(@NonNull Points points, double x0, double x1, float step) {
+        // a small margin for rounding errors
+        final int intervals = (int) Math.ceil((x1 - x0) / step - 0.01f);
+        if (intervals <= 1) {
+            return false;
+        }
+        for (int i = 1; i < intervals; i++) {
+            filled.add(points.size);
+            points.add(x0 + i * (x1 - x0) / intervals, Double.NaN, Double.NaN);
+        }
+        return true;
+    }
+
+    private void calculate(double from, double to, float step, @NonNull Graph graph, @NonNull Dimensions.Graph g) {
+        // x is calculated from the index to avoid accumulating an error. Note that step is negative if we go from
+        // right to left (prepending the values)
+        final int count = (int) Math.ceil((to - from) / step);
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            xs[i] = from + i * (double) step;
+        }
+        // the first point tells if the curve supports derivatives
+        derivatives = curve.y(xs, 0, 1, ys, ds);
+        evaluate(count);
+        if (curve.isCancelled()) {
+            // the graph stays as it was
+            return;
+        }
+
+        budget = count * MAX_POINTS_PER_STEP;
+        final Points points = this.points;
+        points.clear();
+        for (int i = 0; i < count; i++) {
+            points.add(xs[i], ys[i], derivatives ? ds[i] : Double.NaN);
+        }
+        // the graph stays as it was if the refinement is cancelled
+        refine(graph, step > 0, g);
+    }
+
+    private void ensureCapacity(int count) {
+        if (xs.length < count) {
+            xs = new double[count];
+            ys = new double[count];
+            ds = new double[count];
+        }
+    }
+
+    /**
+     * Calculates ys (and ds if the derivatives are calculated) in the first <var>count</var> xs. Large batches are
+     * calculated in parallel. Note that the calculation stops early if the curve is cancelled
+     */
+    private void evaluate(int count) {
+        final Function evaluator = count >= PARALLEL_MIN_POINTS && Parallel.isAvailable() ? curve.newEvaluator() : null;
+        if (evaluator != null) {
+            evaluateInParallel(count, evaluator);
+            return;
+        }
+        for (int i = 0; i < count; i += CHUNK_SIZE) {
+            if (curve.isCancelled()) {
+                break;
+            }
+            if (derivatives) {
+                curve.y(xs, i, Math.min(CHUNK_SIZE, count - i), ys, ds);
+            } else {
+                curve.y(xs, i, Math.min(CHUNK_SIZE, count - i), ys);
+            }
+        }
+    }
+
+    /**
+     * @param evaluator evaluator to be used by the first thread, other threads create their own evaluators
+     */
+    private void evaluateInParallel(final int count, @NonNull Function evaluator) {
+        // each thread writes to its own part of the ys
+        final double[] xs = this.xs;
+        final double[] ys = this.ys;
+        final double[] ds = this.ds;
+        final boolean derivatives = this.derivatives;
+        final AtomicReference<Function> first = new AtomicReference<>(evaluator);
+        Parallel.run((count + CHUNK_SIZE - 1) / CHUNK_SIZE, new Parallel.Task() {
+            @Override
+            public void run(@NonNull Parallel.Chunks chunks) {
+                Function evaluator = first.getAndSet(null);
+                if (evaluator == null) {
+                    evaluator = curve.newEvaluator();
+                    Check.isNotNull(evaluator);
+                }
+                for (int chunk = chunks.next(); chunk >= 0 && !curve.isCancelled(); chunk = chunks.next()) {
+                    final int i = chunk * CHUNK_SIZE;
+                    if (derivatives) {
+                        evaluator.evaluate(xs, i, Math.min(CHUNK_SIZE, count - i), ys, ds);
+                    } else {
+                        evaluator.evaluate(xs, i, Math.min(CHUNK_SIZE, count - i), ys);
+                    }
+                }
+            }
+        });
+    }
+
+    private void add(@NonNull Path path, boolean append, double x, double y) {
+        final float vx = (float) (x - originX);
+        final float vy = (float) (y - originY);
+        if (append) {
+            path.append(vx, vy);
+        } else {
+            path.prepend(vx, vy);
+        }
+    }
+
+    /**
+     * Divides the open intervals between the points (see {@link Points#open}) in halves while the curve is not flat
+     * enough and adds all the points to <var>path</var> in the order of x's. Intervals are refined level by level:
+     * middle points of all the intervals of one level are calculated at once (see {@link #evaluate(int)}).
+     *
+     * @return false if the curve was cancelled, nothing is added then
+     */
+    private boolean refine(@NonNull Path path, boolean append, @NonNull Dimensions.Graph g) {
+        for (int depth = 0; ; depth++) {
+            if (curve.isCancelled()) {
+                return false;
+            }
+            final Points points = this.points;
+            // number of the middle points to be calculated and the number of the gaps to be added
+            int count = 0;
+            int gaps = 0;
+            // at most one middle point per interval
+            ensureCapacity(points.size);
+            for (int i = 0; i + 1 < points.size; i++) {
+                if (!points.open[i]) {
+                    continue;
+                }
+                final int division = divide(points, i, depth, g);
+                points.divisions[i] = division;
+                if (division == DIVISION_GAP) {
+                    gaps++;
+                } else if (division != DIVISION_NONE) {
+                    budget--;
+                    xs[count++] = (points.xs[i] + points.xs[i + 1]) / 2;
+                }
+            }
+            if (count == 0 && gaps == 0) {
+                break;
+            }
+            evaluate(count);
+            if (curve.isCancelled()) {
+                return false;
+            }
+            divide(points, refined, g);
+            this.points = refined;
+            this.refined = points;
+        }
+        final Points points = this.points;
+        for (int i = 0; i < points.size; i++) {
+            add(path, append, points.xs[i], points.ys[i]);
+        }
+        return true;
+    }
+
+    /**
+     * @return how the i-th interval of <var>points</var> should be divided, see DIVISION_* constants. Note that
+     * {@link Points#overshoots} is updated with the overshoot of the interval
+     */
+    private int divide(@NonNull Points points, int i, int depth, @NonNull Dimensions.Graph g) {
+        final double x0 = points.xs[i];
+        final double y0 = points.ys[i];
+        final double d0 = points.ds[i];
+        final double x1 = points.xs[i + 1];
+        final double y1 = points.ys[i + 1];
+        final double d1 = points.ds[i + 1];
+        int enclosure = enclose(g, x0, y0, x1, y1);
+        final float overshoot = enclosure == ENCLOSURE_SPIKE ? this.overshoot : 0f;
+        if (enclosure == ENCLOSURE_SPIKE && overshoot <= ENCLOSURE_MAX_SHRINK * points.overshoots[i]) {
+            // enclosures of smooth curves are often wider than the curves themselves (e.g. x*x - x is enclosed as
+            // [a*a - b, b*b - a] on [a, b]) by a value proportional to the width of the interval while a spike
+            // doesn't shrink until the interval is narrower than the spike
+            enclosure = ENCLOSURE_UNKNOWN;
+        }
+        points.overshoots[i] = overshoot;
+        if (depth >= MAX_DEPTH || budget <= 0) {
+            if (enclosure == ENCLOSURE_UNBOUNDED || (enclosure != ENCLOSURE_FLAT && isDiscontinuous(g, y0, y1))) {
+                // the interval can't be divided anymore but the curve still jumps => it should be interrupted
+                return DIVISION_GAP;
+            }
+            return DIVISION_NONE;
+        }
+        if (enclosure == ENCLOSURE_FLAT) {
+            return DIVISION_NONE;
+        }
+        final boolean cubic = enclosure == ENCLOSURE_UNKNOWN && Meshes.isFinite(y0) && Meshes.isFinite(y1) && Meshes.isFinite(d0) && Meshes.isFinite(d1);
+        if (cubic && !isCurved(g, x0, y0, d0, x1, y1, d1)) {
+            return DIVISION_NONE;
+        }
+        if (enclosure == ENCLOSURE_UNKNOWN && !cubic) {
+            return DIVISION_CHECKED;
+        }
+        return DIVISION_HALVES;
+    }
+
+    /**
+     * Copies <var>points</var> to <var>out</var> and inserts the middle points (calculated by {@link #evaluate(int)})
+     * and the gaps into the intervals which are divided
+     */
+    private void divide(@NonNull Points points, @NonNull Points out, @NonNull Dimensions.Graph g) {
+        out.clear();
+        // index of the next middle point
+        int m = 0;
+        for (int i = 0; i < points.size; i++) {
+            final double x0 = points.xs[i];
+            final double y0 = points.ys[i];
+            out.add(x0, y0, points.ds[i]);
+            final int last = out.size - 1;
+            if (i + 1 == points.size || !points.open[i] || points.divisions[i] == DIVISION_NONE) {
+                out.open[last] = false;
+                continue;
+            }
+            final double x1 = points.xs[i + 1];
+            final double y1 = points.ys[i + 1];
+            if (points.divisions[i] == DIVISION_GAP) {
+                out.open[last] = false;
+                out.add((x0 + x1) / 2, Double.NaN, Double.NaN);
+                out.open[last + 1] = false;
+                continue;
+            }
+            final double xm = xs[m];
+            final double ym = ys[m];
+            final double dm = derivatives ? ds[m] : Double.NaN;
+            m++;
+            if (points.divisions[i] == DIVISION_CHECKED && !shouldRefine(toScreenX(g, x0), toScreenY(g, y0), toScreenX(g, xm), toScreenY(g, ym), toScreenX(g, x1), toScreenY(g, y1))) {
+                // the middle point is not needed
+                budget++;
+                out.open[last] = false;
+                continue;
+            }
+            out.overshoots[last] = points.overshoots[i];
+            out.add(xm, ym, dm);
+            out.overshoots[last + 1] = points.overshoots[i];
+        }
+    }
+
+    /**
+     * @return true if the cubic which has values y0, y1 and derivatives d0, d1 in x0, x1 deviates from the segment
+     * (x0, y0)-(x1, y1) by more than the tolerance
+     */
+    private boolean isCurved(@NonNull Dimensions.Graph g, double x0, double y0, double d0, double x1, double y1, double d1) {
+        final float dx = g.scaleToScreenX((float) (x1 - x0));
+        final float dy = g.scaleToScreenY((float) (y1 - y0));
+        final float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0f) {
+            return false;
+        }
+        // derivatives in screen coordinates relative to the slope of the segment
+        final float scale = g.scaleToScreenY(1f) / g.scaleToScreenX(1f);
+        final float slope = dy / dx;
+        final float s0 = (float) d0 * scale - slope;
+        final float s1 = (float) d1 * scale - slope;
+        // vertical deviation of the cubic from the segment is dx * (t(1-t)^2 * s0 - t^2(1-t) * s1), 0 <= t <= 1,
+        // where t(1-t)^2 <= 4/27. Distance to the segment is dx / length times smaller
+        return 4f / 27f * dx * dx / length * (Math.abs(s0) + Math.abs(s1)) > tolerance;
+    }
+
+    /**
+     * Classifies the curve between two points using its enclosure on [x0, x1], see ENCLOSURE_* constants
+     */
+    private int enclose(@NonNull Dimensions.Graph g, double x0, double y0, double x1, double y1) {
+        if (!Meshes.isFinite(y0) || !Meshes.isFinite(y1)) {
+            // the curve starts or ends somewhere in the interval, enclosure doesn't tell where
+            return ENCLOSURE_UNKNOWN;
+        }
+        // x0 > x1 if the points are prepended
+        xInterval.set(Math.min(x0, x1), Math.max(x0, x1));
+        if (!curve.y(xInterval, yInterval) || yInterval.isEmpty()) {
+            return ENCLOSURE_UNKNOWN;
+        }
+        if (!yInterval.isBounded()) {
+            return ENCLOSURE_UNBOUNDED;
+        }
+        final float sy0 = toScreenY(g, y0);
+        final float sy1 = toScreenY(g, y1);
+        final float sMin = Math.min(toScreenY(g, yInterval.min), toScreenY(g, yInterval.max));
+        final float sMax = Math.max(toScreenY(g, yInterval.min), toScreenY(g, yInterval.max));
+        if (sMax - sMin <= tolerance) {
+            // vertical distance between the curve and the segment is not bigger than the height of the enclosure
+            return ENCLOSURE_FLAT;
+        }
+        overshoot = Math.max(Math.min(sy0, sy1) - sMin, sMax - Math.max(sy0, sy1));
+        if (overshoot > tolerance) {
+            return ENCLOSURE_SPIKE;
+        }
+        return ENCLOSURE_UNKNOWN;
+    }
+
+    private boolean shouldRefine(float sx0, float sy0, float sx, float sy, float sx1, float sy1) {
+        final boolean finite0 = Meshes.isFinite(sy0);
+        final boolean finite = Meshes.isFinite(sy);
+        final boolean finite1 = Meshes.isFinite(sy1);
+        if (!finite0 || !finite || !finite1) {
+            // the curve starts or ends somewhere in the interval, let's find where
+            return finite0 != finite || finite != finite1;
+        }
+        final float dx = sx1 - sx0;
+        final float dy = sy1 - sy0;
+        if (dx * dx + dy * dy <= tolerance * tolerance) {
+            return false;
+        }
+        if (distance(sx0, sy0, sx, sy, sx1, sy1) > tolerance) {
+            return true;
+        }
+        // angle between the halves of the segment
+        final float ax = sx - sx0;
+        final float ay = sy - sy0;
+        final float bx = sx1 - sx;
+        final float by = sy1 - sy;
+        final float dot = ax * bx + ay * by;
+        return dot < MAX_ANGLE_COS * (float) Math.sqrt((ax * ax + ay * ay) * (bx * bx + by * by));
+    }
+
+    /**
+     * @return true if the curve most likely has a pole (or a jump) between two close points, e.g. tan(x) around pi/2:
+     * the curve changes its sign and jumps over more than the graph's height
+     */
+    private static boolean isDiscontinuous(@NonNull Dimensions.Graph g, double y0, double y1) {
+        if (!Meshes.isFinite(y0) || !Meshes.isFinite(y1)) {
+            return false;
+        }
+        return (y0 < 0) != (y1 < 0) && Math.abs(y1 - y0) > g.size.height;
+    }
+
+    /**
+     * @return scene coordinate of <var>x</var> relative to the origin, see ORIGIN_MAX_DISTANCE. As only distances
+     * between the points are measured in scene coordinates they don't need to be absolute
+     */
+    private float toScreenX(@NonNull Dimensions.Graph g, double x) {
+        return g.toScreenX((float) (x - originX));
+    }
+
+    private float toScreenY(@NonNull Dimensions.Graph g, double y) {
+        return g.toScreenY((float) (y - originY));
+    }
+
+    /**
+     * @return distance between the middle point (sx, sy) and the segment (sx0, sy0)-(sx1, sy1)
+     */
+    private static float distance(float sx0, float sy0, float sx, float sy, float sx1, float sy1) {
+        final float dx = sx1 - sx0;
+        final float dy = sy1 - sy0;
+        final float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) {
+            return (float) Math.hypot(sx - sx0, sy - sy0);
+        }
+        return Math.abs(dx * (sy - sy0) - dy * (sx - sx0)) / length;
+    }
+
+    /**
+     * Points of the curve in the order of x's. The i-th interval (between the i-th and the (i + 1)-th points) is
+     * refined only if it's open
+     */
+    private static final class Points {
+        int size;
+        @NonNull
+        double[] xs;
+        @NonNull
+        double[] ys;
+        // derivatives, NaN if unknown
+        @NonNull
+        double[] ds;
+        @NonNull
+        boolean[] open;
+        // overshoot of the enclosure of the interval which was divided to get the i-th interval, see enclose
+        @NonNull
+        float[] overshoots;
+        // see divide
+        @NonNull
+        int[] divisions;
+
+        Points(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            xs = new double[capacity];
+            ys = new double[capacity];
+            ds = new double[capacity];
+            open = new boolean[capacity];
+            overshoots = new float[capacity];
+            divisions = new int[capacity];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * Adds a point, the interval after it is open
+         */
+        void add(double x, double y, double d) {
+            if (size == xs.length) {
+                final double[] xs = this.xs;
+                final double[] ys = this.ys;
+                final double[] ds = this.ds;
+                final boolean[] open = this.open;
+                final float[] overshoots = this.overshoots;
+                allocate(2 * size + 1);
+                System.arraycopy(xs, 0, this.xs, 0, size);
+                System.arraycopy(ys, 0, this.ys, 0, size);
+                System.arraycopy(ds, 0, this.ds, 0, size);
+                System.arraycopy(open, 0, this.open, 0, size);
+                System.arraycopy(overshoots, 0, this.overshoots, 0, size);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            ds[size] = d;
+            open[size] = true;
+            overshoots[size] = 0f;
+            size++;
+        }
+    }
+}
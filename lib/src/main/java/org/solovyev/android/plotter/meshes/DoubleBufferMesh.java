@@ -6,6 +6,7 @@ import android.util.Log;
 
 import org.solovyev.android.plotter.Color;
 import org.solovyev.android.plotter.MeshConfig;
+import org.solovyev.android.plotter.Plot;
 
 import javaz.annotation.concurrent.GuardedBy;
 import javaz.annotation.concurrent.ThreadSafe;
@@ -28,6 +29,8 @@ public class DoubleBufferMesh<M extends Mesh> implements Mesh {
     private M current;
     @GuardedBy("lock")
     private M next;
+    // next mesh is not swapped in before this time, see hold
+    private volatile long heldUntil;
 
     private DoubleBufferMesh(@NonNull M first, @NonNull M second, @Nullable Swapper<? super M> swapper) {
         this.first = first;
@@ -53,8 +56,7 @@ public class DoubleBufferMesh<M extends Mesh> implements Mesh {
     @Override
     public boolean initGl(@NonNull GL11 gl, @NonNull MeshConfig config) {
         final M next = getNext();
-        final boolean initGl = next.initGl(gl, config);
-        if (initGl) {
+        if (Plot.animationTime() >= heldUntil && next.initGl(gl, config)) {
             swap(next);
             return true;
         }
@@ -63,6 +65,19 @@ public class DoubleBufferMesh<M extends Mesh> implements Mesh {
         return getOther(next).initGl(gl, config);
     }
 
+    /**
+     * Keeps the current mesh on the screen until <var>time</var> (see {@link Plot#animationTime()}) or until
+     * {@link #release()} is called even if the next mesh is initialized, e.g. if the next mesh was calculated for
+     * dimensions which are not set yet
+     */
+    public void hold(long time) {
+        heldUntil = time;
+    }
+
+    public void release() {
+        heldUntil = 0;
+    }
+
     private void swap(@NonNull M next) {
         synchronized (lock) {
             Log.d(TAG, "Swapping current=" + getMeshName(this.current) + " with next=" + getMeshName(next));
@@ -2,6 +2,7 @@ package org.solovyev.android.plotter.meshes;
 
 import android.support.annotation.NonNull;
 
+import org.solovyev.android.plotter.Dimensions;
 import org.solovyev.android.plotter.Function;
 
 public interface FunctionGraph extends DimensionsAware {
@@ -13,4 +14,35 @@ public interface FunctionGraph extends DimensionsAware {
     int getPointsCount();
 
     void setPointsCount(int pointsCount);
+
+    /**
+     * @return true if the graph can be drawn for <var>dimensions</var> without being recalculated
+     */
+    boolean canDraw(@NonNull Dimensions dimensions);
+
+    /**
+     * @param progressive true if the graph should be shown in a low resolution (preview) before it is calculated in
+     *                    the full resolution, see {@link #setPreview(boolean)}
+     */
+    void setProgressive(boolean progressive);
+
+    /**
+     * @return true if the graph was calculated in a low resolution
+     */
+    boolean isPreview();
+
+    /**
+     * @param preview true if the graph should be calculated in a low resolution the next time it changes (only if the
+     *                graph is progressive). If false the graph is (re)calculated in the full resolution
+     */
+    void setPreview(boolean preview);
+
+    /**
+     * Called on GL thread before the graph is drawn
+     *
+     * @param x x coordinate of the camera in the frame which is going to be drawn (the camera moves while the graph
+     *          is panned, i.e. it is not necessarily opposite to the center of the graph's scene)
+     * @param y y coordinate of the camera
+     */
+    void setCamera(double x, double y);
 }
@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 
 import org.solovyev.android.plotter.Dimensions;
 import org.solovyev.android.plotter.Function;
+import org.solovyev.android.plotter.Interval;
 
 public class FunctionGraph2d extends BaseCurve implements FunctionGraph {
 
@@ -23,18 +24,24 @@ public class FunctionGraph2d extends BaseCurve implements FunctionGraph {
     }
 
     @Override
-    protected float y(float x) {
-        final Function f = function;
-        switch (f.getArity()) {
-            case 0:
-                return f.evaluate();
-            case 1:
-                return f.evaluate(x);
-            case 2:
-                return f.evaluate(x, 0);
-            default:
-                throw new IllegalArgumentException();
-        }
+    protected void y(@NonNull double[] xs, int offset, int length, @NonNull double[] ys) {
+        function.evaluate(xs, offset, length, ys);
+    }
+
+    @Override
+    protected boolean y(@NonNull double[] xs, int offset, int length, @NonNull double[] ys, @NonNull double[] ds) {
+        return function.evaluate(xs, offset, length, ys, ds);
+    }
+
+    @Override
+    protected boolean y(@NonNull Interval x, @NonNull Interval y) {
+        return function.evaluate(x, y);
+    }
+
+    @NonNull
+    @Override
+    protected Function newEvaluator() {
+        return function.newEvaluator();
     }
 
     @NonNull
@@ -55,7 +62,9 @@ public class FunctionGraph2d extends BaseCurve implements FunctionGraph {
     @NonNull
     @Override
     protected BaseMesh makeCopy() {
-        return create(dimensions.get(), function, pointsCount);
+        final FunctionGraph2d copy = create(dimensions.get(), function, pointsCount);
+        copy.setProgressive(isProgressive());
+        return copy;
     }
 
     @Override
@@ -44,6 +44,41 @@ public class FunctionGraph3d extends BaseSurface implements FunctionGraph {
         }
     }
 
+    @Override
+    protected void z(@NonNull float[] xs, float y, int yi, int length, @NonNull float[] zs) {
+        function.evaluate(xs, y, 0, length, zs);
+    }
+
+    @Override
+    public boolean canDraw(@NonNull Dimensions dimensions) {
+        return false;
+    }
+
+    @Override
+    public void setProgressive(boolean progressive) {
+        // surfaces are always calculated in the full resolution
+    }
+
+    @Override
+    public boolean isPreview() {
+        return false;
+    }
+
+    @Override
+    public void setPreview(boolean preview) {
+    }
+
+    @Override
+    public void setCamera(double x, double y) {
+        // surfaces are drawn in scene coordinates
+    }
+
+    @NonNull
+    @Override
+    protected Function newEvaluator() {
+        return function.newEvaluator();
+    }
+
     @NonNull
     @Override
     public Function getFunction() {
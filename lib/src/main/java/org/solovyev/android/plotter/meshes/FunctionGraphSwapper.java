@@ -15,5 +15,14 @@ public final class FunctionGraphSwapper implements DoubleBufferMesh.Swapper<Func
         DimensionsAwareSwapper.INSTANCE.swap(current, next);
         next.setFunction(current.getFunction());
         next.setPointsCount(current.getPointsCount());
+        if (current.isPreview()) {
+            // only a preview is shown => the next graph is calculated in the full resolution
+            next.setPreview(false);
+        } else {
+            // the graph is shown in the full resolution => its next change is previewed first. If the next graph
+            // must catch up with the current one it is calculated in the full resolution as nothing has changed for
+            // the user
+            next.setPreview(next.getState() != Mesh.State.DIRTY);
+        }
     }
 }
@@ -1,6 +1,5 @@
 package org.solovyev.android.plotter.meshes;
 
-import android.graphics.PointF;
 import android.support.annotation.NonNull;
 
 import org.solovyev.android.plotter.Check;
@@ -8,7 +7,6 @@ import org.solovyev.android.plotter.Check;
 class Graph extends Path {
 
     float step = -1f;
-    final PointF center = new PointF();
 
     private Graph() {
     }
@@ -20,13 +18,15 @@ class Graph extends Path {
 
     public void moveStartTo(float x) {
         checkIsNotEmpty();
-        while (start < end && vertices[start] < x) {
-            start += 3;
+        int points = 0;
+        for (int i = start, left = length(); left > 0 && vertices[i] < x; i = next(i), left -= 3) {
+            points++;
         }
-
-        if (start > end) {
-            start = end;
+        if (points == 0) {
+            // nothing to remove => the version stays the same
+            return;
         }
+        removeFromStart(points);
     }
 
     private void checkIsNotEmpty() {
@@ -35,13 +35,15 @@ class Graph extends Path {
 
     public void moveEndTo(float x) {
         checkIsNotEmpty();
-        while (start < end && vertices[end - 3] > x) {
-            end -= 3;
+        int points = 0;
+        for (int i = previous(end), left = length(); left > 0 && vertices[i] > x; i = previous(i), left -= 3) {
+            points++;
         }
-
-        if (start > end) {
-            end = start;
+        if (points == 0) {
+            // nothing to remove => the version stays the same
+            return;
         }
+        removeFromEnd(points);
     }
 
     public float xMin() {
@@ -49,6 +51,6 @@ class Graph extends Path {
     }
 
     public float xMax() {
-        return vertices[end - 3];
+        return vertices[previous(end)];
     }
 }
@@ -0,0 +1,174 @@
+package org.solovyev.android.plotter.meshes;
+
+import android.support.annotation.NonNull;
+
+import org.solovyev.android.plotter.Check;
+
+/**
+ * Indices of a mesh prepared for drawing with unsigned short indices. If the indices refer to more than
+ * {@link #MAX_VERTICES} vertices they are split into chunks: indices of each chunk are stored relative to the base
+ * vertex of the chunk (GL is told about the base by offsetting vertex pointers, see BaseMesh#draw). Primitives are
+ * never split between chunks: a strip interrupted by the end of a chunk continues in the next chunk from its last
+ * vertex. A line strip can also be interrupted by {@link #RESTART}: the strip continues in a new chunk from the next
+ * vertex.
+ */
+final class IndicesChunks {
+
+    static final int MAX_VERTICES = 65536;
+    // not a vertex: marks the end of a line strip
+    static final int RESTART = -1;
+
+    @NonNull
+    short[] indices = new short[0];
+    int indicesCount;
+    // triples of base vertex, first index and number of indices
+    @NonNull
+    private int[] chunks = new int[3];
+    private int chunksCount;
+    // start of the current chunk in indices
+    private int chunkStart;
+    private int base;
+
+    /**
+     * Converts first <var>count</var> elements of <var>indices</var> (which form primitives of <var>order</var>)
+     */
+    void set(@NonNull int[] indices, int count, @NonNull IndicesOrder order) {
+        indicesCount = 0;
+        chunksCount = 0;
+        chunkStart = 0;
+        base = 0;
+
+        int max = 0;
+        boolean restarts = false;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, indices[i]);
+            restarts |= indices[i] == RESTART;
+        }
+        if (restarts) {
+            Check.isTrue(order == IndicesOrder.LINE_STRIP, "Only line strips can be restarted");
+        }
+        if (max < MAX_VERTICES && !restarts) {
+            // everything fits into one chunk
+            ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                this.indices[i] = (short) indices[i];
+            }
+            indicesCount = count;
+            closeChunk();
+            return;
+        }
+
+        switch (order) {
+            case LINE_STRIP:
+                boolean first = true;
+                for (int i = 0; i < count; i++) {
+                    final int index = indices[i];
+                    if (index == RESTART) {
+                        if (!first) {
+                            closeStrip();
+                            first = true;
+                        }
+                        continue;
+                    }
+                    if (first) {
+                        base = max < MAX_VERTICES ? 0 : getBase(index, index);
+                        first = false;
+                    } else if (!fits(index)) {
+                        final int previous = indices[i - 1];
+                        closeChunk();
+                        base = getBase(Math.min(previous, index), Math.max(previous, index));
+                        add(previous);
+                    }
+                    add(index);
+                }
+                if (!first) {
+                    closeStrip();
+                }
+                // chunks are already closed
+                return;
+            case POINTS:
+            case LINES:
+            case TRIANGLES:
+                final int size = order == IndicesOrder.POINTS ? 1 : (order == IndicesOrder.LINES ? 2 : 3);
+                for (int i = 0; i + size <= count; i += size) {
+                    int primitiveMin = indices[i];
+                    int primitiveMax = indices[i];
+                    for (int j = i + 1; j < i + size; j++) {
+                        primitiveMin = Math.min(primitiveMin, indices[j]);
+                        primitiveMax = Math.max(primitiveMax, indices[j]);
+                    }
+                    if (i == 0) {
+                        base = getBase(primitiveMin, primitiveMax);
+                    } else if (!fits(primitiveMin) || !fits(primitiveMax)) {
+                        closeChunk();
+                        base = getBase(primitiveMin, primitiveMax);
+                    }
+                    for (int j = i; j < i + size; j++) {
+                        add(indices[j]);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Can't split " + order + " into chunks");
+        }
+        closeChunk();
+    }
+
+    /**
+     * @return base vertex such that both <var>min</var> and <var>max</var> fit into the chunk. The base is chosen in
+     * the middle so that the following indices can go in both directions
+     */
+    private static int getBase(int min, int max) {
+        Check.isTrue(max - min < MAX_VERTICES, "Primitive doesn't fit into a chunk");
+        return Math.max(0, min - (MAX_VERTICES - 1 - (max - min)) / 2);
+    }
+
+    private boolean fits(int index) {
+        return index >= base && index - base < MAX_VERTICES;
+    }
+
+    private void add(int index) {
+        ensureCapacity(indicesCount + 1);
+        indices[indicesCount++] = (short) (index - base);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (indices.length < capacity) {
+            final short[] newIndices = new short[Math.max(capacity, 5 * indices.length / 4 + 4)];
+            System.arraycopy(indices, 0, newIndices, 0, indicesCount);
+            indices = newIndices;
+        }
+    }
+
+    private void closeChunk() {
+        if (chunksCount == chunks.length) {
+            final int[] newChunks = new int[2 * chunks.length];
+            System.arraycopy(chunks, 0, newChunks, 0, chunksCount);
+            chunks = newChunks;
+        }
+        chunks[chunksCount++] = base;
+        chunks[chunksCount++] = chunkStart;
+        chunks[chunksCount++] = indicesCount - chunkStart;
+        chunkStart = indicesCount;
+    }
+
+    private void closeStrip() {
+        if (indicesCount - chunkStart < 2) {
+            // a single vertex is not drawn as a line strip
+            indicesCount = chunkStart;
+            return;
+        }
+        closeChunk();
+    }
+
+    /**
+     * @return copy of the chunks (triples of base vertex, first index and number of indices) which can be passed
+     * to another thread
+     */
+    @NonNull
+    int[] getChunks() {
+        final int[] copy = new int[chunksCount];
+        System.arraycopy(chunks, 0, copy, 0, chunksCount);
+        return copy;
+    }
+}
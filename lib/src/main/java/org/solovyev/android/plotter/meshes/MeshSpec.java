@@ -13,6 +13,7 @@ public class MeshSpec {
     public static final int MAX_WIDTH = 20;
     public static final int MIN_WIDTH = 1;
     public static final int DEFAULT_POINTS_COUNT = -1;
+    public static final boolean DEFAULT_PROGRESSIVE = true;
     @NonNull
     public static final Color COLOR_NO = Color.TRANSPARENT;
     @NonNull
@@ -20,15 +21,19 @@ public class MeshSpec {
     private static final String JSON_COLOR = "c";
     private static final String JSON_WIDTH = "w";
     private static final String JSON_POINTS_COUNT = "pc";
+    private static final String JSON_PROGRESSIVE = "p";
     @NonNull
     public Color color;
     public int width;
     public int pointsCount = DEFAULT_POINTS_COUNT;
+    // if true a preview of the function graph is shown while the graph is calculated, see FunctionGraph#setProgressive
+    public boolean progressive = DEFAULT_PROGRESSIVE;
 
     private MeshSpec(@NonNull JSONObject json) {
         this.color = Color.create(json.optInt(JSON_COLOR, Color.WHITE.toInt()));
         this.width = json.optInt(JSON_WIDTH, MIN_WIDTH);
         this.pointsCount = json.optInt(JSON_POINTS_COUNT, DEFAULT_POINTS_COUNT);
+        this.progressive = json.optBoolean(JSON_PROGRESSIVE, DEFAULT_PROGRESSIVE);
     }
 
     private MeshSpec(@NonNull Color color, int width, int pointsCount) {
@@ -63,13 +68,16 @@ public class MeshSpec {
 
     @NonNull
     public MeshSpec copy() {
-        return new MeshSpec(color, width, pointsCount);
+        final MeshSpec copy = new MeshSpec(color, width, pointsCount);
+        copy.progressive = progressive;
+        return copy;
     }
 
     public void applyTo(@NonNull FunctionGraph mesh) {
         mesh.setColor(color);
         mesh.setWidth(width);
         mesh.setPointsCount(pointsCount);
+        mesh.setProgressive(progressive);
     }
 
     @Override
@@ -81,6 +89,7 @@ public class MeshSpec {
 
         if (width != that.width) return false;
         if (pointsCount != that.pointsCount) return false;
+        if (progressive != that.progressive) return false;
         if (!color.equals(that.color)) return false;
 
         return true;
@@ -91,6 +100,7 @@ public class MeshSpec {
         int result = color.hashCode();
         result = 31 * result + width;
         result = 31 * result + pointsCount;
+        result = 31 * result + (progressive ? 1 : 0);
         return result;
     }
 
@@ -100,6 +110,7 @@ public class MeshSpec {
         json.put(JSON_COLOR, color.toInt());
         json.put(JSON_WIDTH, width);
         json.put(JSON_POINTS_COUNT, pointsCount);
+        json.put(JSON_PROGRESSIVE, progressive);
         return json;
     }
 
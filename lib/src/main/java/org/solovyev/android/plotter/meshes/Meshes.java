@@ -36,10 +36,14 @@ public final class Meshes {
 
     @NonNull
     public static FloatBuffer allocateBuffer(float[] array, int start, int length) {
+        return putBuffer(array, start, length, allocateFloatBuffer(length));
+    }
+
+    @NonNull
+    static FloatBuffer allocateFloatBuffer(int length) {
         final ByteBuffer buffer = ByteBuffer.allocateDirect(length * BYTES_IN_FLOAT);
         buffer.order(ByteOrder.nativeOrder());
-        final FloatBuffer floatBuffer = buffer.asFloatBuffer();
-        return putBuffer(array, start, length, floatBuffer);
+        return buffer.asFloatBuffer();
     }
 
     @NonNull
@@ -104,6 +108,14 @@ public final class Meshes {
         return newBuffer;
     }
 
+    static boolean isFinite(float value) {
+        return !Float.isNaN(value) && !Float.isInfinite(value);
+    }
+
+    static boolean isFinite(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
     static float getTickStep(float width, int ticks) {
         Check.isTrue(width > 0f, "Width must be positive");
         final float rawTickStep = width / (ticks - 1);
@@ -0,0 +1,176 @@
+package org.solovyev.android.plotter.meshes;
+
+import android.support.annotation.NonNull;
+
+import org.solovyev.android.plotter.Plot;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits work into chunks and processes them on several threads. The calling thread takes part in the processing
+ * and claims chunks the same way as the helper threads do => the work is done even if all the helper threads are
+ * busy (or if {@link #run(int, Task)} is called from a helper thread).
+ * <p>
+ * Helper threads are taken from the background pool which is shared by all the plotters (see
+ * {@link #execute(Runnable)}) => no more than {@link Plot#getAvailableProcessors()} threads are busy at any time.
+ */
+public final class Parallel {
+
+    private static final int THREADS = Plot.getAvailableProcessors();
+
+    @NonNull
+    private static final ExecutorService background = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+
+        @NonNull
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            final Thread thread = new Thread(r, "PlotBackground #" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private Parallel() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Executes <var>command</var> on the background pool
+     */
+    public static void execute(@NonNull Runnable command) {
+        background.execute(command);
+    }
+
+    static boolean isAvailable() {
+        return THREADS > 1;
+    }
+
+    /**
+     * Runs <var>task</var> on the calling thread and on up to {@link Plot#getAvailableProcessors()} - 1 helper
+     * threads. Returns when all <var>chunks</var> have been processed. If any of the threads fails the exception is
+     * rethrown on the calling thread.
+     */
+    public static void run(int chunks, @NonNull Task task) {
+        final Job job = new Job(chunks, task);
+        final int count = Math.min(THREADS - 1, chunks - 1);
+        try {
+            for (int i = 0; i < count; i++) {
+                background.execute(job);
+            }
+        } catch (RejectedExecutionException e) {
+            // the calling thread will do all the work
+        }
+        job.run();
+        job.await();
+    }
+
+    public interface Task {
+        /**
+         * Called once on each thread taking part in the processing. Implementation should process chunks
+         * returned from {@link Chunks#next()} until it returns -1. Any state which can't be shared between threads
+         * (buffers, evaluators) should be created here.
+         */
+        void run(@NonNull Chunks chunks);
+    }
+
+    public static final class Chunks {
+        @NonNull
+        private final Job job;
+        // chunk which is being processed by the current thread, -1 if none
+        private int chunk = -1;
+
+        private Chunks(@NonNull Job job) {
+            this.job = job;
+        }
+
+        /**
+         * Marks the previous chunk (if any) as processed and claims the next one
+         *
+         * @return index of the next chunk or -1 if there is nothing left
+         */
+        public int next() {
+            done();
+            final int next = job.next.getAndIncrement();
+            if (next < job.chunks) {
+                chunk = next;
+            }
+            return chunk;
+        }
+
+        private void done() {
+            if (chunk >= 0) {
+                chunk = -1;
+                job.done.countDown();
+            }
+        }
+    }
+
+    private static final class Job implements Runnable {
+        private final int chunks;
+        @NonNull
+        private final Task task;
+        @NonNull
+        private final AtomicInteger next = new AtomicInteger();
+        @NonNull
+        private final CountDownLatch done;
+        @NonNull
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Job(int chunks, @NonNull Task task) {
+            this.chunks = chunks;
+            this.task = task;
+            this.done = new CountDownLatch(chunks);
+        }
+
+        @Override
+        public void run() {
+            if (next.get() >= chunks) {
+                // everything is claimed already
+                return;
+            }
+            final Chunks chunks = new Chunks(this);
+            try {
+                task.run(chunks);
+            } catch (Throwable e) {
+                error.compareAndSet(null, e);
+            } finally {
+                // nothing is left if the task succeeded. Otherwise remaining chunks are skipped as await() would never
+                // return if they are not marked as processed
+                while (chunks.next() >= 0) {
+                    // skipping
+                }
+            }
+        }
+
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            final Throwable e = error.get();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e instanceof Error) {
+                throw (Error) e;
+            } else if (e != null) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -3,112 +3,381 @@ package org.solovyev.android.plotter.meshes;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
+import org.solovyev.android.plotter.Check;
+import org.solovyev.android.plotter.arrays.IntArray;
+
+/**
+ * Vertices of a path stored in a ring buffer: vertices can be added at both ends and removed from both ends without
+ * moving the rest of them. The path might continue from the beginning of the array, i.e. it consists of at most
+ * two contiguous parts: [start, capacity) and [0, end). Indices of the path refer to the positions in the array => the
+ * array can be uploaded as it is and only the changed parts of it need to be uploaded again (see
+ * {@link #getDirtyRanges(IntArray)})
+ */
 public class Path {
+    // always a multiple of 3
     int capacity = 4 * 3;
 
+    // position of the first vertex
     int start;
+    // position after the last vertex (0 if the last vertex is at the end of the array)
     int end;
+    // number of floats in the path
+    private int length;
+    // incremented every time the vertices change
+    int version;
+    // incremented every time the vertices are replaced (and not just added to or removed from the ends)
+    int generation;
+    // part of the path which hasn't changed since the last call of markClean, see getDirtyRanges
+    private int cleanStart;
+    private int cleanLength;
 
     @NonNull
     float[] vertices = new float[capacity];
 
-    private int indicesCount = capacity / 3;
+    private int indicesCount;
     @NonNull
-    private short[] indices = new short[indicesCount];
-
-    {
-        initIndices();
-    }
+    private int[] indices = new int[capacity / 3];
 
     public Path() {
         init();
     }
 
     private static int newCapacity(int capacity) {
-        return 5 * capacity / 4 + 4;
+        final int newCapacity = 5 * capacity / 4 + 4;
+        return newCapacity + 2 - (newCapacity + 2) % 3;
     }
 
     void prepend(float x, float y) {
-        ensureCanPrepend();
+        ensureCapacity(3);
+        version++;
+
+        start = previous(start);
+        length += 3;
+        vertices[start] = x;
+        vertices[start + 1] = y;
+        vertices[start + 2] = 0;
+    }
 
-        vertices[--start] = 0;
-        vertices[--start] = y;
-        vertices[--start] = x;
+    void append(float x, float y) {
+        ensureCapacity(3);
+        version++;
+
+        vertices[end] = x;
+        vertices[end + 1] = y;
+        vertices[end + 2] = 0;
+        end = next(end);
+        length += 3;
     }
 
-    private void ensureCanPrepend() {
-        if (start < 3) {
-            makeSpaceAtTheStart();
-            logCapacity();
+    private void ensureCapacity(int length) {
+        if (this.length + length > capacity) {
+            int newCapacity = capacity;
+            while (this.length + length > newCapacity) {
+                newCapacity = newCapacity(newCapacity);
+            }
+            grow(newCapacity);
+            Log.v(Meshes.getTag("Graph"), "Capacity=" + capacity);
         }
     }
 
-    void append(float x, float y) {
-        ensureCanAppend();
+    private void grow(int newCapacity) {
+        final float[] newVertices = new float[newCapacity];
+        final int first = getFirstPartLength();
+        System.arraycopy(vertices, start, newVertices, 0, first);
+        System.arraycopy(vertices, 0, newVertices, first, length - first);
+        vertices = newVertices;
+        capacity = newCapacity;
+        start = 0;
+        end = length;
+        cleanLength = 0;
+    }
 
-        vertices[end++] = x;
-        vertices[end++] = y;
-        vertices[end++] = 0;
+    /**
+     * Makes space for <var>points</var> vertices at the end of the path. Vertices should be written by the caller
+     * to {@link #vertices} (the array might change after this call), use {@link #position(int)} to find them
+     */
+    void reserveAtEnd(int points) {
+        final int length = 3 * points;
+        ensureCapacity(length);
+        end = wrap(end + length);
+        this.length += length;
+        version++;
     }
 
-    private void ensureCanAppend() {
-        if (end + 3 > capacity) {
-            makeSpaceAtTheEnd();
-            logCapacity();
-        }
+    /**
+     * Same as {@link #reserveAtEnd(int)} but reserves the space before the first vertex of the path
+     */
+    void reserveAtStart(int points) {
+        final int length = 3 * points;
+        ensureCapacity(length);
+        start = wrap(start - length);
+        this.length += length;
+        version++;
     }
 
-    private void logCapacity() {
-        Log.v(Meshes.getTag("Graph"), "Capacity=" + capacity);
+    /**
+     * Removes <var>points</var> vertices from the start of the path
+     */
+    void removeFromStart(int points) {
+        final int length = 3 * points;
+        Check.isTrue(length <= this.length, "Can't remove more than there is");
+        final int cleanOffset = offset(cleanStart);
+        if (cleanOffset < length) {
+            final int removed = Math.min(length - cleanOffset, cleanLength);
+            cleanStart = wrap(cleanStart + removed);
+            cleanLength -= removed;
+        }
+        start = wrap(start + length);
+        this.length -= length;
+        version++;
     }
 
-    void makeSpaceAtTheEnd() {
-        if (start > capacity / 2) {
-            final int length = length();
-            System.arraycopy(vertices, start, vertices, 0, length);
-            start = 0;
-            end = length;
-            return;
+    /**
+     * Removes <var>points</var> vertices from the end of the path
+     */
+    void removeFromEnd(int points) {
+        final int length = 3 * points;
+        Check.isTrue(length <= this.length, "Can't remove more than there is");
+        final int cleanOffset = offset(cleanStart);
+        if (cleanOffset + cleanLength > this.length - length) {
+            cleanLength = Math.max(0, this.length - length - cleanOffset);
         }
+        end = wrap(end - length);
+        this.length -= length;
+        version++;
+    }
 
-        final int newCapacity = newCapacity(capacity);
-        final float[] newVertices = new float[newCapacity];
-        System.arraycopy(vertices, start, newVertices, start, length());
-        vertices = newVertices;
-        capacity = newCapacity;
+    /**
+     * Moves vertices to the beginning of the array if the path wraps around the end of it
+     */
+    void makeContiguous() {
+        if (getFirstPartLength() < length) {
+            grow(capacity);
+        }
     }
 
     public boolean canGrow(int maxCapacity) {
         return newCapacity(capacity) < maxCapacity;
     }
 
-    private void makeSpaceAtTheStart() {
-        if (end != 0 && end < capacity / 2) {
-            final int newStart = start + capacity - end;
-            final int length = length();
-            System.arraycopy(vertices, start, vertices, newStart, length);
-            start = newStart;
-            end = newStart + length;
+    private int wrap(int position) {
+        if (position >= capacity) {
+            return position - capacity;
+        } else if (position < 0) {
+            return position + capacity;
+        }
+        return position;
+    }
+
+    /**
+     * @return position of the <var>vertex</var>-th vertex of the path in {@link #vertices}
+     */
+    int position(int vertex) {
+        return wrap(start + 3 * vertex);
+    }
+
+    /**
+     * @return position of the vertex following the vertex at <var>position</var>
+     */
+    int next(int position) {
+        position += 3;
+        return position == capacity ? 0 : position;
+    }
+
+    /**
+     * @return position of the vertex preceding the vertex at <var>position</var>
+     */
+    int previous(int position) {
+        return (position == 0 ? capacity : position) - 3;
+    }
+
+    /**
+     * @return length of the part of the path starting at {@link #start}. The rest of the path (if any) starts at 0
+     */
+    int getFirstPartLength() {
+        return Math.min(length, capacity - start);
+    }
+
+    /**
+     * Marks all the vertices of the path as clean, see {@link #getDirtyRanges(IntArray)}
+     */
+    void markClean() {
+        cleanStart = start;
+        cleanLength = length;
+    }
+
+    /**
+     * Adds ranges of {@link #vertices} which have changed since the last call of {@link #markClean()} to
+     * <var>out</var>. Each range is represented by two elements: its start and end positions. As vertices are only
+     * added to the ends of the path there are at most four ranges (each end might wrap around the end of the array).
+     */
+    void getDirtyRanges(@NonNull IntArray out) {
+        if (cleanLength == 0) {
+            addRange(out, start, length);
             return;
         }
+        addRange(out, start, offset(cleanStart));
+        final int cleanEnd = wrap(cleanStart + cleanLength);
+        addRange(out, cleanEnd, length - offset(cleanStart) - cleanLength);
+    }
 
-        final int newCapacity = newCapacity(capacity);
-        final float[] newVertices = new float[newCapacity];
-        final int offset = (newCapacity - capacity) / 2;
-        System.arraycopy(vertices, start, newVertices, start + offset, length());
-        start += offset;
-        end += offset;
-        vertices = newVertices;
-        capacity = newCapacity;
+    private void addRange(@NonNull IntArray out, int position, int length) {
+        if (length == 0) {
+            return;
+        }
+        final int first = Math.min(length, capacity - position);
+        out.add(position);
+        out.add(position + first);
+        if (first < length) {
+            out.add(0);
+            out.add(length - first);
+        }
+    }
+
+    /**
+     * Copies vertices of this path to <var>to</var> keeping only the first, the lowest, the highest and the last
+     * vertex of each column of width <var>columnWidth</var>. As all the removed vertices lie within the column and
+     * between the kept ones the path looks the same when each column is a pixel wide.
+     */
+    void decimate(@NonNull Path to, float columnWidth) {
+        to.init();
+        decimate(to, columnWidth, start, length);
+    }
+
+    /**
+     * Same as {@link #decimate(Path, float)} but <var>to</var> is expected to be decimated from this path with the
+     * same column width and since then vertices of this path were only added to or removed from its ends. Vertices
+     * of the columns which are the same in both paths are kept, the other columns are decimated again (vertices
+     * prepended to <var>to</var> are decimated to <var>tmp</var> first)
+     */
+    void decimateEnds(@NonNull Path to, float columnWidth, @NonNull Path tmp) {
+        if (isEmpty() || to.isEmpty()) {
+            decimate(to, columnWidth);
+            return;
+        }
+        // the first and the last vertices are never removed by the decimation => to starts and ends where this path
+        // started and ended before the changes. Columns between first and last are complete in both paths
+        final float first = (float) Math.floor(Math.max(vertices[start], to.vertices[to.start]) / columnWidth);
+        final float last = (float) Math.floor(Math.min(vertices[previous(end)], to.vertices[to.previous(to.end)]) / columnWidth);
+        if (last - first < 2) {
+            decimate(to, columnWidth);
+            return;
+        }
+        to.removeFromStart(to.countFromStart(first, columnWidth));
+        to.removeFromEnd(to.countFromEnd(last, columnWidth));
+
+        tmp.init();
+        decimate(tmp, columnWidth, start, 3 * countFromStart(first, columnWidth));
+        for (int i = tmp.previous(tmp.end), left = tmp.length; left > 0; i = tmp.previous(i), left -= 3) {
+            to.prepend(tmp.vertices[i], tmp.vertices[i + 1]);
+        }
+        final int tail = countFromEnd(last, columnWidth);
+        decimate(to, columnWidth, position(length / 3 - tail), 3 * tail);
+    }
+
+    /**
+     * @return number of vertices at the start of the path which lie in columns up to <var>column</var>
+     */
+    private int countFromStart(float column, float columnWidth) {
+        int points = 0;
+        for (int i = start, left = length; left > 0 && Math.floor(vertices[i] / columnWidth) <= column; i = next(i), left -= 3) {
+            points++;
+        }
+        return points;
     }
 
+    /**
+     * @return number of vertices at the end of the path which lie in columns starting from <var>column</var>
+     */
+    private int countFromEnd(float column, float columnWidth) {
+        int points = 0;
+        for (int i = previous(end), left = length; left > 0 && Math.floor(vertices[i] / columnWidth) >= column; i = previous(i), left -= 3) {
+            points++;
+        }
+        return points;
+    }
+
+    private void decimate(@NonNull Path to, float columnWidth, int i, int left) {
+        while (left > 0) {
+            if (!Meshes.isFinite(vertices[i + 1])) {
+                // gaps in the path must be preserved
+                to.append(vertices[i], vertices[i + 1]);
+                i = next(i);
+                left -= 3;
+                continue;
+            }
+            final double column = Math.floor(vertices[i] / columnWidth);
+            int min = i;
+            int max = i;
+            int last = i;
+            int j = next(i);
+            left -= 3;
+            while (left > 0 && Meshes.isFinite(vertices[j + 1]) && Math.floor(vertices[j] / columnWidth) == column) {
+                if (vertices[j + 1] < vertices[min + 1]) {
+                    min = j;
+                }
+                if (vertices[j + 1] > vertices[max + 1]) {
+                    max = j;
+                }
+                last = j;
+                j = next(j);
+                left -= 3;
+            }
+            // vertices are added in the original order and only once
+            final boolean minFirst = offset(min) <= offset(max);
+            final int lo = minFirst ? min : max;
+            final int hi = minFirst ? max : min;
+            to.append(vertices[i], vertices[i + 1]);
+            if (lo != i) {
+                to.append(vertices[lo], vertices[lo + 1]);
+            }
+            if (hi != lo) {
+                to.append(vertices[hi], vertices[hi + 1]);
+            }
+            if (last != hi) {
+                to.append(vertices[last], vertices[last + 1]);
+            }
+            i = j;
+        }
+    }
+
+    private int offset(int position) {
+        return position >= start ? position - start : position + capacity - start;
+    }
+
+    /**
+     * Exchanges vertices of this path with the vertices of <var>that</var>
+     */
+    void swap(@NonNull Path that) {
+        final float[] vertices = this.vertices;
+        final int capacity = this.capacity;
+        final int start = this.start;
+        final int end = this.end;
+        final int length = this.length;
+        this.vertices = that.vertices;
+        this.capacity = that.capacity;
+        this.start = that.start;
+        this.end = that.end;
+        this.length = that.length;
+        that.vertices = vertices;
+        that.capacity = capacity;
+        that.start = start;
+        that.end = end;
+        that.length = length;
+        this.version++;
+        that.version++;
+        this.generation++;
+        that.generation++;
+        this.cleanLength = 0;
+        that.cleanLength = 0;
+    }
 
     int length() {
-        return end - start;
+        return length;
     }
 
     boolean isEmpty() {
-        return start == end;
+        return length == 0;
     }
 
     void clear() {
@@ -117,52 +386,53 @@ public class Path {
     }
 
     private void init() {
-        // starting not from zero to allow prepend work without resizing the array
-        start = capacity / 3;
-        end = capacity / 3;
+        start = 0;
+        end = 0;
+        length = 0;
+        cleanLength = 0;
+        version++;
+        generation++;
     }
 
-    short[] getIndices() {
-        final int indicesCountOld = indicesCount;
-        indicesCount = length() / 3;
-        if (indicesCountOld < indicesCount) {
-            indices = new short[indicesCount];
-            initIndices();
+    /**
+     * @return indices of the vertices of the path in the order they are in the path. Note that indices refer to the
+     * vertices in {@link #vertices} (and not in the path) as the path might wrap around the end of the array. Vertices
+     * which are not finite (gaps) are replaced with {@link IndicesChunks#RESTART}
+     */
+    int[] getIndices() {
+        indicesCount = length / 3;
+        if (indices.length < indicesCount) {
+            indices = new int[indicesCount];
         }
-        return indices;
-    }
-
-    private void initIndices() {
-        for (int i = 0; i < indices.length; i++) {
-            indices[i] = (short) i;
+        for (int i = 0, position = start; i < indicesCount; i++, position = next(position)) {
+            indices[i] = Meshes.isFinite(vertices[position + 1]) ? position / 3 : IndicesChunks.RESTART;
         }
+        return indices;
     }
 
     int getIndicesCount() {
         return indicesCount;
     }
 
-    short[] getIndices(float minY, float maxY) {
-        final int verticesCount = length() / 3;
-        final int indicesCount = 2 * verticesCount - 2;
-        this.indicesCount = indicesCount;
-        if (indices.length < indicesCount) {
-            indices = new short[indicesCount];
-        }
-        short j = 0;
-        for (short vertex = 0; vertex < verticesCount - 1; vertex++) {
-            final float y = vertices[start + 3 * vertex + 1];
-            final float yNext = vertices[start + 3 * (vertex + 1) + 1];
-            if (y > maxY || yNext > maxY) {
-                this.indicesCount -= 2;
-                continue;
-            } else if (y < minY || yNext < minY) {
-                this.indicesCount -= 2;
-                continue;
+    /**
+     * Adds runs of the path to <var>out</var>, i.e. pairs of the first vertex and the number of vertices of each part
+     * of the path between the gaps (vertices which are not finite). Runs which consist of one vertex are skipped as
+     * there is nothing to draw. Vertices are numbered in the path order, see {@link #position(int)}
+     */
+    void getRuns(@NonNull IntArray out) {
+        final int points = length / 3;
+        int first = -1;
+        for (int i = 0, position = start; i <= points; i++, position = next(position)) {
+            final boolean finite = i < points && Meshes.isFinite(vertices[position + 1]);
+            if (finite && first < 0) {
+                first = i;
+            } else if (!finite && first >= 0) {
+                if (i - first > 1) {
+                    out.add(first);
+                    out.add(i - first);
+                }
+                first = -1;
             }
-            indices[j++] = vertex;
-            indices[j++] = (short) (vertex + 1);
         }
-        return indices;
     }
 }
@@ -8,7 +8,6 @@ import org.solovyev.android.plotter.Dimensions;
 import org.solovyev.android.plotter.MeshConfig;
 
 import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
 
 import javax.microedition.khronos.opengles.GL11;
 
@@ -22,7 +21,8 @@ public abstract class ShapeMesh extends BaseMesh implements DimensionsAware {
     protected final ShapePath path = new ShapePath();
     // create on the background thread and accessed from GL thread
     private volatile FloatBuffer verticesBuffer;
-    private volatile ShortBuffer indicesBuffer;
+    private volatile int firstVertex;
+    private volatile int verticesCount;
 
     protected ShapeMesh(@NonNull Dimensions dimensions, @NonNull PointF center) {
         this.dimensions = new MeshDimensions(dimensions);
@@ -39,8 +39,11 @@ public abstract class ShapeMesh extends BaseMesh implements DimensionsAware {
         path.center.set(center);
         fillPath(path, dimensions);
 
-        verticesBuffer = Meshes.allocateOrPutBuffer(path.vertices, path.start, path.length(), verticesBuffer);
-        indicesBuffer = Meshes.allocateOrPutBuffer(path.getIndices(), 0, path.getIndicesCount(), indicesBuffer);
+        verticesBuffer = Meshes.allocateOrPutBuffer(path.vertices, 0, path.capacity, verticesBuffer);
+        // shapes are only appended => vertices are stored in one piece and don't need indices
+        Check.isTrue(path.getFirstPartLength() == path.length(), "Path must be contiguous");
+        firstVertex = path.start / 3;
+        verticesCount = path.length() / 3;
     }
 
     @Override
@@ -50,7 +53,7 @@ public abstract class ShapeMesh extends BaseMesh implements DimensionsAware {
         Check.isNotNull(verticesBuffer);
 
         setVertices(verticesBuffer);
-        setIndices(indicesBuffer, IndicesOrder.LINE_LOOP);
+        setContiguousIndices(firstVertex, verticesCount, IndicesOrder.LINE_LOOP);
     }
 
 
@@ -78,7 +81,7 @@ public abstract class ShapeMesh extends BaseMesh implements DimensionsAware {
         }
 
         private void offset(float x, float y) {
-            for (int i = start; i < end; i += 3) {
+            for (int i = start, left = length(); left > 0; i = next(i), left -= 3) {
                 vertices[i] += x;
                 vertices[i + 1] += y;
             }
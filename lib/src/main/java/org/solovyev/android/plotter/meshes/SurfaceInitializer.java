@@ -3,10 +3,17 @@ package org.solovyev.android.plotter.meshes;
 import android.graphics.RectF;
 import android.support.annotation.NonNull;
 
+import org.solovyev.android.plotter.Check;
 import org.solovyev.android.plotter.Dimensions;
+import org.solovyev.android.plotter.Function;
+
+import java.util.concurrent.atomic.AtomicReference;
 
 class SurfaceInitializer {
 
+    private static final boolean PARALLEL = true;
+    private static final int PARALLEL_MIN_VERTICES = 1024;
+
     @NonNull
     private final BaseSurface surface;
 
@@ -20,59 +27,115 @@ class SurfaceInitializer {
 
 
     public void init(@NonNull Arrays arrays) {
+        init(arrays, PARALLEL && Parallel.isAvailable() && data.totalVertices() >= PARALLEL_MIN_VERTICES);
+    }
+
+    /**
+     * Note that the initialization stops early if the surface is cancelled (see {@link BaseMesh#isCancelled()}), the
+     * arrays are incomplete then
+     *
+     * @param parallel true if rows should be calculated concurrently. Note that rows are calculated in parallel
+     *                 only if the surface provides an evaluator (see {@link BaseSurface#newEvaluator()}). The result
+     *                 is the same for both parallel and serial initialization
+     */
+    void init(@NonNull Arrays arrays, boolean parallel) {
         arrays.init(3 * data.totalVertices(), data.totalVertices());
 
-        final float dx = data.dx();
-        final float dy = data.dy();
+        final Function evaluator = parallel ? surface.newEvaluator() : null;
+        if (evaluator != null) {
+            initInParallel(arrays, evaluator);
+            return;
+        }
 
         final float[] point = new float[3];
+        final float[] xs = new float[data.xVertices];
+        final float[] zs = new float[data.xVertices];
+        for (int yi = 0; yi < data.yVertices && !surface.isCancelled(); yi++) {
+            final float y = initRow(yi, xs);
+            surface.z(xs, y, yi, data.xVertices, zs);
+            fillRow(arrays, yi, xs, y, zs, point);
+        }
+    }
 
-        int vertex = 0;
-        for (int yi = 0; yi < data.yVertices; yi++) {
-            final float y = data.bounds.top + yi * dy;
-            final boolean yEven = yi % 2 == 0;
-
-            for (int xi = 0; xi < data.xVertices; xi++) {
-                final boolean xEven = xi % 2 == 0;
-                int ii = xi * (data.yVertices - 1) + xi;
-                int iv = yi * (data.xVertices - 1) + yi;
-                if (xEven) {
-                    ii += yi;
-                } else {
-                    ii += (data.yVertices - 1 - yi);
+    /**
+     * @param evaluator evaluator to be used by the first thread, other threads create their own evaluators
+     */
+    private void initInParallel(@NonNull final Arrays arrays, @NonNull Function evaluator) {
+        // each row is written to its own part of the arrays => rows can be calculated in any order
+        final AtomicReference<Function> first = new AtomicReference<>(evaluator);
+        Parallel.run(data.yVertices, new Parallel.Task() {
+            @Override
+            public void run(@NonNull Parallel.Chunks chunks) {
+                Function evaluator = first.getAndSet(null);
+                if (evaluator == null) {
+                    evaluator = surface.newEvaluator();
+                    Check.isNotNull(evaluator);
                 }
-                if (yEven) {
-                    iv += xi;
-                } else {
-                    iv += (data.xVertices - 1 - xi);
+                final float[] point = new float[3];
+                final float[] xs = new float[data.xVertices];
+                final float[] zs = new float[data.xVertices];
+                for (int yi = chunks.next(); yi >= 0 && !surface.isCancelled(); yi = chunks.next()) {
+                    final float y = initRow(yi, xs);
+                    evaluator.evaluate(xs, y, 0, data.xVertices, zs);
+                    fillRow(arrays, yi, xs, y, zs, point);
                 }
+            }
+        });
+    }
 
-                final float x;
-                if (yEven) {
-                    // going right
-                    x = data.bounds.left + xi * dx;
-                } else {
-                    // going left
-                    x = data.bounds.right - xi * dx;
-                }
+    /**
+     * Fills <var>xs</var> with x coordinates of the row in the order of vertex indices (xi)
+     *
+     * @return y coordinate of the row
+     */
+    private float initRow(int yi, @NonNull float[] xs) {
+        final float dx = data.dx();
+        final boolean yEven = yi % 2 == 0;
+        for (int xi = 0; xi < data.xVertices; xi++) {
+            if (yEven) {
+                // going right
+                xs[xi] = data.bounds.left + xi * dx;
+            } else {
+                // going left
+                xs[xi] = data.bounds.right - xi * dx;
+            }
+        }
+        return data.bounds.top + yi * data.dy();
+    }
 
-                final float z = surface.z(x, y, xi, yi);
+    private void fillRow(@NonNull Arrays arrays, int yi, @NonNull float[] xs, float y, @NonNull float[] zs, @NonNull float[] point) {
+        final boolean yEven = yi % 2 == 0;
+        int vertex = 3 * yi * data.xVertices;
+        for (int xi = 0; xi < data.xVertices; xi++) {
+            final boolean xEven = xi % 2 == 0;
+            int ii = xi * (data.yVertices - 1) + xi;
+            int iv = yi * (data.xVertices - 1) + yi;
+            if (xEven) {
+                ii += yi;
+            } else {
+                ii += (data.yVertices - 1 - yi);
+            }
+            if (yEven) {
+                iv += xi;
+            } else {
+                iv += (data.xVertices - 1 - xi);
+            }
 
-                point[0] = x;
-                point[1] = y;
-                point[2] = z;
+            point[0] = xs[xi];
+            point[1] = y;
+            point[2] = zs[xi];
 
-                scale(point);
-                rotate(point);
+            scale(point);
+            rotate(point);
 
-                arrays.indices[ii] = (short) iv;
-                arrays.vertices[vertex++] = point[0];
-                arrays.vertices[vertex++] = point[2];
-                arrays.vertices[vertex++] = point[1];
-            }
+            arrays.indices[ii] = iv;
+            arrays.vertices[vertex++] = point[0];
+            arrays.vertices[vertex++] = point[2];
+            arrays.vertices[vertex++] = point[1];
         }
     }
 
+    // both methods might be called from several threads at the same time, see init(Arrays, boolean)
     protected void rotate(float[] point) {
     }
 